@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Measures cold-start time: how long after launch the application reports ready, and how
+# long until the first RAG request succeeds. Run it for every release and compare.
+#
+# Usage:
+#   IMAGE=spring-ai-app:latest ENV_FILE=.env scripts/startup-benchmark.sh [runs]
+#   JAR=target/spring-ai-app-0.0.1-SNAPSHOT.jar scripts/startup-benchmark.sh [runs]
+#
+# ENV_FILE (Docker) or the environment (jar) must provide the Azure OpenAI and database
+# settings, e.g. SPRING_DATASOURCE_URL and SPRING_AI_AZURE_OPENAI_API_KEY.
+#
+# Output is CSV: run,ready_ms,first_request_ms
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-180}
+READY_PATH=${READY_PATH:-/actuator/health/readiness}
+REQUEST_PATH=${REQUEST_PATH:-/api/rag?query=What%20is%20Spring%20AI%3F}
+
+if [[ -z "${IMAGE:-}" && -z "${JAR:-}" ]]; then
+    echo "Set IMAGE (Docker image) or JAR (application jar)" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+start_app() {
+    if [[ -n "${IMAGE:-}" ]]; then
+        docker run -d --rm -p "${PORT}:8080" ${ENV_FILE:+--env-file "$ENV_FILE"} "$IMAGE"
+    else
+        SPRING_PROFILES_ACTIVE=${SPRING_PROFILES_ACTIVE:-faststart} SERVER_PORT=$PORT \
+            java ${JAVA_OPTS:-} -jar "$JAR" >/dev/null 2>&1 &
+        echo $!
+    fi
+}
+
+stop_app() {
+    if [[ -n "${IMAGE:-}" ]]; then
+        docker stop "$1" >/dev/null
+    else
+        kill "$1" && wait "$1" 2>/dev/null || true
+    fi
+}
+
+# Prints the milliseconds from $1 until $2 answers 200, or fails after TIMEOUT_SECONDS
+wait_for() {
+    local start=$1 url=$2
+    local deadline=$(( start + TIMEOUT_SECONDS * 1000 ))
+    until curl -fsS -o /dev/null "$url" 2>/dev/null; do
+        if (( $(now_ms) > deadline )); then
+            echo "Timed out waiting for $url" >&2
+            return 1
+        fi
+        sleep 0.05
+    done
+    echo $(( $(now_ms) - start ))
+}
+
+echo "run,ready_ms,first_request_ms"
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    app=$(start_app)
+    trap 'stop_app "$app"' EXIT
+    ready=$(wait_for "$start" "http://localhost:${PORT}${READY_PATH}")
+    first=$(wait_for "$start" "http://localhost:${PORT}${REQUEST_PATH}")
+    echo "${run},${ready},${first}"
+    stop_app "$app"
+    trap - EXIT
+done
@@ -0,0 +1,54 @@
+package com.example.springaiapp.config;
+
+import com.example.springaiapp.resilience.DeploymentGuard;
+import com.example.springaiapp.resilience.DeploymentGuardEmbeddingModel;
+import com.example.springaiapp.service.CachingEmbeddingModel;
+import com.example.springaiapp.service.EmbeddingCache;
+import com.example.springaiapp.service.PipelineMetrics;
+import com.example.springaiapp.service.TokenCounter;
+import org.springframework.ai.azure.openai.AzureOpenAiEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Wires the embedding model used by the PgVector store and the RAG services.
+ *
+ * The Azure OpenAI embedding model created by Spring AI auto-configuration is wrapped
+ * in a {@link CachingEmbeddingModel}. Because the wrapper is {@code @Primary}, the
+ * auto-configured PgVector store picks it up for both similarity search and add.
+ * Cache misses go through the embedding deployment's {@link DeploymentGuard}; cache hits do not.
+ */
+@Configuration
+public class EmbeddingConfig {
+
+    @Bean
+    public EmbeddingCache embeddingCache(
+            @Value("${app.embedding-cache.dimensions:1536}") int dimensions,
+            @Value("${app.embedding-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.embedding-cache.max-weight:64MB}") DataSize maxWeight) {
+        return new EmbeddingCache(dimensions, maxEntries, maxWeight.toBytes());
+    }
+
+    /**
+     * The Azure OpenAI model behind the deployment guard, without the cache. Bulk ingestion
+     * uses it directly so a corpus does not evict the cached query embeddings.
+     */
+    @Bean
+    public EmbeddingModel guardedEmbeddingModel(AzureOpenAiEmbeddingModel azureOpenAiEmbeddingModel,
+                                                @Qualifier("embeddingGuard") DeploymentGuard embeddingGuard,
+                                                TokenCounter tokenCounter) {
+        return new DeploymentGuardEmbeddingModel(azureOpenAiEmbeddingModel, embeddingGuard, tokenCounter);
+    }
+
+    @Bean
+    @Primary
+    public EmbeddingModel cachingEmbeddingModel(@Qualifier("guardedEmbeddingModel") EmbeddingModel guardedEmbeddingModel,
+                                                EmbeddingCache embeddingCache, PipelineMetrics pipelineMetrics) {
+        return new CachingEmbeddingModel(guardedEmbeddingModel, embeddingCache, pipelineMetrics);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springaiapp.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.springaiapp.vectorstore.QuantizedIndexMigration;
+import com.example.springaiapp.vectorstore.QuantizedVectorStore.StorageMode;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.database.postgresql.PostgreSQLConfigurationExtension;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Flyway settings the migrations in {@code db/migration} rely on.
+ *
+ * <ul>
+ *   <li>Databases created by the old {@code schema.sql} have no Flyway history. They are
+ *       baselined at version 0, so every migration still runs; the migrations are written
+ *       to adopt existing objects.</li>
+ *   <li>{@code R__vector_store_hnsw_index.sql} builds its index with
+ *       {@code CREATE INDEX CONCURRENTLY}, which cannot run in a transaction. Mixed mode lets
+ *       Flyway run that script without one, and a session-level (rather than transactional)
+ *       migration lock keeps the concurrent build from waiting on Flyway's own transaction.</li>
+ *   <li>The HNSW build parameters are passed to the scripts as placeholders.</li>
+ *   <li>The compressed index for {@code app.vector-storage.mode} is built by the
+ *       repeatable {@link QuantizedIndexMigration}, which runs after the
+ *       {@code R__} script and is configured from the same properties.</li>
+ * </ul>
+ */
+@Configuration
+public class FlywayConfig implements FlywayConfigurationCustomizer {
+
+    @Value("${app.vector-index.m:16}")
+    private int m;
+
+    @Value("${app.vector-index.ef-construction:64}")
+    private int efConstruction;
+
+    @Value("${app.vector-storage.mode:FULL}")
+    private StorageMode storageMode;
+
+    @Value("${app.vector-storage.dimensions:1536}")
+    private int dimensions;
+
+    @Value("${app.vector-storage.drop-full-precision-index:false}")
+    private boolean dropFullPrecisionIndex;
+
+    @Override
+    public void customize(FluentConfiguration configuration) {
+        if (efConstruction < 2 * m) {
+            throw new IllegalStateException(String.format(
+                    "app.vector-index.ef-construction (%d) must be at least twice app.vector-index.m (%d)",
+                    efConstruction, m));
+        }
+        Map<String, String> placeholders = new HashMap<>(configuration.getPlaceholders());
+        placeholders.put("hnsw_m", String.valueOf(m));
+        placeholders.put("hnsw_ef_construction", String.valueOf(efConstruction));
+
+        configuration.placeholders(placeholders)
+                .mixed(true)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .javaMigrations(new QuantizedIndexMigration(storageMode, dimensions, dropFullPrecisionIndex,
+                        m, efConstruction));
+        configuration.getPluginRegister().getPlugin(PostgreSQLConfigurationExtension.class)
+                .setTransactionalLock(false);
+    }
+}
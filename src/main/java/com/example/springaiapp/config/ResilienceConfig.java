@@ -0,0 +1,111 @@
+package com.example.springaiapp.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RequestRetryCondition;
+import com.azure.core.http.policy.RetryOptions;
+import com.example.springaiapp.resilience.AdaptiveRetry;
+import com.example.springaiapp.resilience.Bulkhead;
+import com.example.springaiapp.resilience.DeploymentGuard;
+import com.example.springaiapp.resilience.DeploymentGuardAdvisor;
+import com.example.springaiapp.resilience.QuotaRateLimiter;
+import com.example.springaiapp.service.TokenCounter;
+import org.springframework.ai.autoconfigure.azure.openai.AzureOpenAIClientBuilderCustomizer;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Protects the Azure OpenAI deployments from overload.
+ *
+ * Each deployment gets its own {@link DeploymentGuard} (retry, RPM/TPM rate limiter and
+ * bulkhead), so a flood of embedding calls cannot starve chat completions (or the other
+ * way round). The chat guard is added to every {@code ChatClient} through a
+ * {@link ChatClientCustomizer}; the embedding guard wraps the embedding model in
+ * {@link EmbeddingConfig}.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    private static final Set<Integer> TRANSIENT_STATUS_CODES = Set.of(408, 500, 502, 503, 504);
+
+    @Value("${app.bulkhead.batch-share:4}")
+    private int batchShare;
+
+    @Value("${app.rate-limit.max-wait:30s}")
+    private Duration maxQuotaWait;
+
+    @Value("${app.rate-limit.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.rate-limit.retry.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${app.rate-limit.retry.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    @Bean
+    public DeploymentGuard chatGuard(
+            @Value("${spring.ai.azure.openai.chat.options.deployment-name}") String deploymentName,
+            @Value("${app.bulkhead.chat.max-concurrent:16}") int maxConcurrent,
+            @Value("${app.bulkhead.chat.max-queued:200}") int maxQueued,
+            @Value("${app.bulkhead.chat.max-wait:30s}") Duration maxWait,
+            @Value("${app.rate-limit.chat.requests-per-minute:0}") int requestsPerMinute,
+            @Value("${app.rate-limit.chat.tokens-per-minute:0}") int tokensPerMinute) {
+        return new DeploymentGuard(deploymentName,
+                new Bulkhead(deploymentName, maxConcurrent, maxQueued, maxWait, batchShare),
+                new QuotaRateLimiter(deploymentName, requestsPerMinute, tokensPerMinute, maxQuotaWait),
+                new AdaptiveRetry(maxAttempts, initialBackoff, maxBackoff));
+    }
+
+    @Bean
+    public DeploymentGuard embeddingGuard(
+            @Value("${spring.ai.azure.openai.embedding.options.deployment-name}") String deploymentName,
+            @Value("${app.bulkhead.embedding.max-concurrent:8}") int maxConcurrent,
+            @Value("${app.bulkhead.embedding.max-queued:500}") int maxQueued,
+            @Value("${app.bulkhead.embedding.max-wait:10s}") Duration maxWait,
+            @Value("${app.rate-limit.embedding.requests-per-minute:0}") int requestsPerMinute,
+            @Value("${app.rate-limit.embedding.tokens-per-minute:0}") int tokensPerMinute) {
+        return new DeploymentGuard(deploymentName,
+                new Bulkhead(deploymentName, maxConcurrent, maxQueued, maxWait, batchShare),
+                new QuotaRateLimiter(deploymentName, requestsPerMinute, tokensPerMinute, maxQuotaWait),
+                new AdaptiveRetry(maxAttempts, initialBackoff, maxBackoff));
+    }
+
+    @Bean
+    public ChatClientCustomizer deploymentGuardChatClientCustomizer(
+            @Qualifier("chatGuard") DeploymentGuard chatGuard, TokenCounter tokenCounter,
+            @Value("${app.rate-limit.chat.expected-completion-tokens:500}") int expectedCompletionTokens) {
+        return builder -> builder.defaultAdvisors(
+                new DeploymentGuardAdvisor(chatGuard, tokenCounter, expectedCompletionTokens));
+    }
+
+    /**
+     * Keeps the Azure SDK's retries for network errors and 5xx, but leaves 429 to
+     * {@link AdaptiveRetry} so throttling also pauses the client-side rate limiter.
+     */
+    @Bean
+    public AzureOpenAIClientBuilderCustomizer throttlingAwareRetryCustomizer() {
+        RetryOptions retryOptions = new RetryOptions(new ExponentialBackoffOptions())
+                .setShouldRetryCondition(ResilienceConfig::isTransientFailure);
+        return clientBuilder -> clientBuilder.retryOptions(retryOptions);
+    }
+
+    private static boolean isTransientFailure(RequestRetryCondition condition) {
+        if (condition.getResponse() != null) {
+            return TRANSIENT_STATUS_CODES.contains(condition.getResponse().getStatusCode());
+        }
+        for (Throwable cause = condition.getThrowable(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.springaiapp.config;
+
+import javax.sql.DataSource;
+
+import com.example.springaiapp.controller.ApiExceptionHandler;
+import com.example.springaiapp.controller.RagController;
+import com.example.springaiapp.service.RagService;
+import org.flywaydb.core.Flyway;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Startup settings for the {@code faststart} profile.
+ *
+ * That profile turns on lazy initialization, so beans are created on first use. The beans
+ * on the RAG request path are kept eager: the schema migration, the connection pool, the
+ * models and vector store, and the RAG controller. Everything else (blog writer, shell
+ * commands, batch and ingestion services) is created only when it is first used.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter ragRequestPathExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(Flyway.class, FlywayMigrationInitializer.class,
+                DataSource.class, EmbeddingModel.class, VectorStore.class, RagService.class,
+                RagController.class, ApiExceptionHandler.class);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.springaiapp.config;
+
+import com.example.springaiapp.service.TokenCounter;
+import com.example.springaiapp.service.TokenUsageAdvisor;
+import com.example.springaiapp.service.TokenUsageTracker;
+import org.springframework.ai.chat.client.ChatClientCustomizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Records the token usage of every chat call: the {@link TokenUsageAdvisor} is added to
+ * every {@code ChatClient}, and the totals are reported at {@code /api/rag/stats}.
+ */
+@Configuration
+public class TokenUsageConfig {
+
+    @Bean
+    public ChatClientCustomizer tokenUsageChatClientCustomizer(
+            TokenUsageTracker tokenUsageTracker, TokenCounter tokenCounter,
+            @Value("${spring.ai.azure.openai.chat.options.deployment-name}") String deploymentName,
+            @Value("${app.token-usage.stream-usage:true}") boolean streamUsage) {
+        return builder -> builder.defaultAdvisors(
+                new TokenUsageAdvisor(tokenUsageTracker, tokenCounter, deploymentName, streamUsage));
+    }
+}
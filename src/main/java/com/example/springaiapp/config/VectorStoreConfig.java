@@ -0,0 +1,86 @@
+package com.example.springaiapp.config;
+
+import com.example.springaiapp.vectorstore.HnswSearchVectorStore;
+import com.example.springaiapp.vectorstore.HybridVectorStore;
+import com.example.springaiapp.vectorstore.QuantizedVectorStore;
+import com.example.springaiapp.vectorstore.QuantizedVectorStore.StorageMode;
+import com.example.springaiapp.vectorstore.ReplicaVectorStore;
+import com.example.springaiapp.vectorstore.VectorStoreReplica;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Assembles the {@link VectorStore} used by the RAG services.
+ *
+ * The PgVector store created by Spring AI auto-configuration is the system of record.
+ * Optional read paths are layered on top of it as decorators, and the outermost one is
+ * exposed as the {@code @Primary} vector store.
+ */
+@Configuration
+public class VectorStoreConfig {
+
+    @Value("${app.vector-storage.mode:FULL}")
+    private StorageMode storageMode;
+
+    @Value("${app.vector-storage.dimensions:1536}")
+    private int dimensions;
+
+    @Value("${app.vector-storage.rerank-factor:4}")
+    private int rerankFactor;
+
+    @Value("${app.vector-index.ef-search:40}")
+    private int efSearch;
+
+    @Value("${app.retrieval.hybrid.enabled:false}")
+    private boolean hybridRetrieval;
+
+    @Value("${app.retrieval.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${app.retrieval.hybrid.candidates-per-leg:2}")
+    private int candidatesPerLeg;
+
+    @Bean
+    @Primary
+    public VectorStore ragVectorStore(PgVectorStore pgVectorStore,
+                                      EmbeddingModel embeddingModel,
+                                      JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      AsyncTaskExecutor applicationTaskExecutor,
+                                      ObjectProvider<VectorStoreReplica> replica) {
+        VectorStore vectorStore = pgVectorStore;
+
+        // Compressed ANN index with full-precision re-ranking (app.vector-storage.mode),
+        // otherwise the managed HNSW index searched with app.vector-index.ef-search.
+        // Both indexes are built by Flyway (see FlywayConfig)
+        if (storageMode != StorageMode.FULL) {
+            vectorStore = new QuantizedVectorStore(vectorStore, jdbcTemplate, transactionTemplate,
+                    embeddingModel, storageMode, dimensions, rerankFactor, efSearch);
+        } else {
+            vectorStore = new HnswSearchVectorStore(vectorStore, jdbcTemplate, transactionTemplate,
+                    embeddingModel, efSearch);
+        }
+
+        // In-process HNSW replica (app.vector-replica.enabled=true)
+        VectorStoreReplica localReplica = replica.getIfAvailable();
+        if (localReplica != null) {
+            vectorStore = new ReplicaVectorStore(vectorStore, localReplica, embeddingModel);
+        }
+
+        // Full-text + vector retrieval merged by reciprocal-rank fusion (app.retrieval.hybrid.enabled=true)
+        if (hybridRetrieval) {
+            vectorStore = new HybridVectorStore(vectorStore, jdbcTemplate, applicationTaskExecutor,
+                    rrfK, candidatesPerLeg);
+        }
+        return vectorStore;
+    }
+}
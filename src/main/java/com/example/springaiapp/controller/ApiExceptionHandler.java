@@ -0,0 +1,41 @@
+package com.example.springaiapp.controller;
+
+import com.example.springaiapp.resilience.BulkheadFullException;
+import com.example.springaiapp.resilience.OverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps load-shedding exceptions to HTTP responses that clients can back off on.
+ *
+ * A full bulkhead queue or an exhausted quota returns 429 Too Many Requests. A call that
+ * waited too long for a bulkhead permit returns 503 Service Unavailable. Both set
+ * {@code Retry-After}.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Map<String, Object>> overloaded(OverloadedException e) {
+        HttpStatus status = e instanceof BulkheadFullException bulkheadFull && !bulkheadFull.isQueueFull()
+                ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.TOO_MANY_REQUESTS;
+        logger.warn("Shedding request with {}: {}", status.value(), e.getMessage());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", e.getMessage());
+        body.put("deployment", e.getDeployment());
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(body);
+    }
+}
@@ -1,70 +1,102 @@
 package com.example.springaiapp.controller;
 
+import com.example.springaiapp.draft.DraftRuleEngine;
+import com.example.springaiapp.service.BlogJobService;
+import com.example.springaiapp.service.BlogResultCache;
 import com.example.springaiapp.service.BlogWriterService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.util.UUID;
 
 import java.util.Map;
 import java.util.HashMap;
-import java.util.List;
-import java.util.ArrayList;
 
 @RestController
 @RequestMapping("/api/blog")
 public class BlogWriterController {
 
     private final BlogWriterService blogWriterService;
+    private final DraftRuleEngine draftRuleEngine;
+    private final BlogJobService blogJobService;
+    private final BlogResultCache blogResultCache;
 
     @Autowired
-    public BlogWriterController(BlogWriterService blogWriterService) {
+    public BlogWriterController(BlogWriterService blogWriterService, DraftRuleEngine draftRuleEngine,
+                                BlogJobService blogJobService, BlogResultCache blogResultCache) {
         this.blogWriterService = blogWriterService;
+        this.draftRuleEngine = draftRuleEngine;
+        this.blogJobService = blogJobService;
+        this.blogResultCache = blogResultCache;
     }
 
+    /**
+     * Generates a blog post. {@code candidates} overrides app.blog.candidates: more than one
+     * writes that many drafts concurrently and refines the best (best-of-N). An approved post
+     * for the same or a paraphrased topic is returned from the cache unless {@code refresh}.
+     */
     @GetMapping(produces = "application/json")
-    public Map<String, Object> generateBlogPost(@RequestParam String topic) {
+    public Map<String, Object> generateBlogPost(@RequestParam String topic,
+                                                @RequestParam(required = false) Integer candidates,
+                                                @RequestParam(defaultValue = "false") boolean refresh) {
         // Generate the blog post and capture metadata
-        BlogWriterService.BlogGenerationResult result = blogWriterService.generateBlogPostWithMetadata(topic);
-        
-        // Create a structured JSON response
-        Map<String, Object> response = new HashMap<>();
-        response.put("topic", topic);
-        response.put("content", result.getContent());
-        response.put("metadata", createMetadataObject(result));
-        
-        return response;
+        return blogResultCache.getOrGenerate(topic, refresh, () -> candidates == null
+            ? blogWriterService.generateBlogPostWithMetadata(topic)
+            : blogWriterService.generateBlogPostWithMetadata(topic, candidates));
+    }
+
+    /**
+     * Streams the writer/editor loop as it runs: Server-Sent Events by default, or NDJSON
+     * with {@code Accept: application/x-ndjson}. The last event is {@code complete} with the
+     * same content and metadata as {@code GET /api/blog}, or {@code error}.
+     */
+    @GetMapping(path = "/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BlogWriterService.BlogEvent> streamBlogPost(@RequestParam String topic) {
+        return blogWriterService.streamBlogPost(topic)
+            .onErrorResume(e -> Flux.just(BlogWriterService.BlogEvent.error(e.getMessage())));
+    }
+
+    /**
+     * Queues a durable blog generation job and returns it right away (202 Accepted). Poll
+     * the job at its {@code Location}, or follow it at {@code /stream}.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<BlogJobService.BlogJob> submitJob(@RequestParam String topic) {
+        BlogJobService.BlogJob job = blogJobService.submit(topic);
+        return ResponseEntity.accepted().location(URI.create("/api/blog/jobs/" + job.id())).body(job);
     }
-    
-    private Map<String, Object> createMetadataObject(BlogWriterService.BlogGenerationResult result) {
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("iterations", result.getIterations());
-        metadata.put("approved", result.isApproved());
-        metadata.put("totalTokensUsed", result.getTotalTokens());
-        
-        if (result.getEditorFeedback() != null && !result.getEditorFeedback().isEmpty()) {
-            List<Map<String, Object>> feedbackHistory = new ArrayList<>();
-            for (int i = 0; i < result.getEditorFeedback().size(); i++) {
-                Map<String, Object> feedbackEntry = new HashMap<>();
-                feedbackEntry.put("iteration", i + 1);
-                feedbackEntry.put("feedback", result.getEditorFeedback().get(i));
-                feedbackHistory.add(feedbackEntry);
-            }
-            metadata.put("editorFeedback", feedbackHistory);
-        }
-        
-        // Include token usage statistics if available
-        if (result.getPromptTokens() > 0) {
-            Map<String, Object> tokenUsage = new HashMap<>();
-            tokenUsage.put("promptTokens", result.getPromptTokens());
-            tokenUsage.put("completionTokens", result.getCompletionTokens());
-            tokenUsage.put("totalTokens", result.getTotalTokens());
-            metadata.put("tokenUsage", tokenUsage);
-        }
-        
-        // Include model information if available
-        if (result.getModelName() != null) {
-            metadata.put("model", result.getModelName());
-        }
-        
-        return metadata;
+
+    @GetMapping("/jobs/{id}")
+    public BlogJobService.BlogJob getJob(@PathVariable UUID id) {
+        return blogJobService.get(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No blog job " + id));
+    }
+
+    /**
+     * Sends the job's state each time it changes, as Server-Sent Events or NDJSON, and
+     * completes once the job has succeeded or failed.
+     */
+    @GetMapping(path = "/jobs/{id}/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BlogJobService.BlogJob> watchJob(@PathVariable UUID id) {
+        getJob(id);
+        return blogJobService.watch(id);
+    }
+
+    /**
+     * Per-rule hit counts and timings of the draft rule checks.
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("draftRules", draftRuleEngine.getStats());
+        stats.put("jobs", blogJobService.getStats());
+        stats.put("resultCache", blogResultCache.getStats());
+        return stats;
     }
 }
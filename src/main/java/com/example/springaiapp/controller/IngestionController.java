@@ -0,0 +1,34 @@
+package com.example.springaiapp.controller;
+
+import com.example.springaiapp.ingestion.CorpusIngestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/api/ingest")
+public class IngestionController {
+
+    private final CorpusIngestionService ingestionService;
+
+    @Autowired
+    public IngestionController(CorpusIngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * Ingests a file or directory below the corpus root and streams progress as NDJSON.
+     */
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CorpusIngestionService.IngestionProgress> ingest(@RequestParam String path,
+                                                                 @RequestParam(defaultValue = "true") boolean resume) {
+        try {
+            return ingestionService.ingest(path, resume);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -1,22 +1,174 @@
 package com.example.springaiapp.controller;
 
+import com.example.springaiapp.resilience.DeploymentGuard;
+import com.example.springaiapp.service.BatchRagService;
+import com.example.springaiapp.service.ContextAssembler;
+import com.example.springaiapp.service.ConversationMemory;
+import com.example.springaiapp.service.DocumentService;
+import com.example.springaiapp.service.EmbeddingCache;
+import com.example.springaiapp.service.InteractionWriter;
 import com.example.springaiapp.service.RagService;
+import com.example.springaiapp.service.SemanticAnswerCache;
+import com.example.springaiapp.service.TokenUsageTracker;
+import com.example.springaiapp.vectorstore.HybridVectorStore;
+import com.example.springaiapp.vectorstore.VectorStoreReplica;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/rag")
 public class RagController {
 
     private final RagService ragService;
+    private final SemanticAnswerCache answerCache;
+    private final EmbeddingCache embeddingCache;
+    private final InteractionWriter interactionWriter;
+    private final ObjectProvider<VectorStoreReplica> vectorStoreReplica;
+    private final VectorStore vectorStore;
+    private final ContextAssembler contextAssembler;
+    private final BatchRagService batchRagService;
+    private final ObjectMapper objectMapper;
+    private final Map<String, DeploymentGuard> deploymentGuards;
+    private final DocumentService documentService;
+    private final ConversationMemory conversationMemory;
+    private final TokenUsageTracker tokenUsageTracker;
 
     @Autowired
-    public RagController(RagService ragService) {
+    public RagController(RagService ragService, SemanticAnswerCache answerCache,
+                         EmbeddingCache embeddingCache, InteractionWriter interactionWriter,
+                         ObjectProvider<VectorStoreReplica> vectorStoreReplica, VectorStore vectorStore,
+                         ContextAssembler contextAssembler, BatchRagService batchRagService,
+                         ObjectMapper objectMapper, Map<String, DeploymentGuard> deploymentGuards,
+                         DocumentService documentService, ConversationMemory conversationMemory,
+                         TokenUsageTracker tokenUsageTracker) {
         this.ragService = ragService;
+        this.answerCache = answerCache;
+        this.embeddingCache = embeddingCache;
+        this.interactionWriter = interactionWriter;
+        this.vectorStoreReplica = vectorStoreReplica;
+        this.vectorStore = vectorStore;
+        this.contextAssembler = contextAssembler;
+        this.batchRagService = batchRagService;
+        this.objectMapper = objectMapper;
+        this.deploymentGuards = deploymentGuards;
+        this.documentService = documentService;
+        this.conversationMemory = conversationMemory;
+        this.tokenUsageTracker = tokenUsageTracker;
     }
 
+    /**
+     * Answers a question. With a {@code sessionId} the question is a turn of that
+     * conversation, and earlier turns of the session are part of the prompt.
+     */
     @GetMapping
-    public String processQuery(@RequestParam String query) {
-        return ragService.processQuery(query);
+    public String processQuery(@RequestParam String query,
+                               @RequestParam(defaultValue = "false") boolean refresh,
+                               @RequestParam(required = false) String sessionId) {
+        return ragService.processQuery(query, refresh, checkSessionId(sessionId));
+    }
+
+    /**
+     * A fragment of a streamed answer. Fragments are sent as JSON, because a raw SSE data
+     * field loses its leading space and most tokens start with one.
+     */
+    public record AnswerFragment(String text) {}
+
+    /**
+     * Streams the answer as Server-Sent Events, one event per token fragment. Each event's
+     * data is a JSON object such as {@code {"text":" world"}}; the answer is the
+     * concatenation of the {@code text} fields.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<AnswerFragment> streamQuery(@RequestParam String query,
+                                            @RequestParam(defaultValue = "false") boolean refresh,
+                                            @RequestParam(required = false) String sessionId) {
+        return ragService.streamQuery(query, refresh, checkSessionId(sessionId)).map(AnswerFragment::new);
+    }
+
+    private static String checkSessionId(String sessionId) {
+        if (sessionId != null && !ConversationMemory.isValidSessionId(sessionId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "sessionId must be 1-128 letters, digits, '.', '_', ':' or '-'");
+        }
+        return sessionId;
+    }
+
+    /**
+     * Answers a JSON array of queries. Each element is either a string or an object with
+     * {@code query} and optional {@code id} and {@code refresh}. Results are streamed back
+     * as NDJSON in completion order.
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchRagService.BatchResult> batch(@RequestBody List<BatchRagService.BatchQuery> queries) {
+        return processBatch(queries);
+    }
+
+    /**
+     * Same as {@link #batch(List)} but with one JSON query per line (NDJSON) as input.
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchRagService.BatchResult> batchNdjson(@RequestBody String body) {
+        List<BatchRagService.BatchQuery> queries = new ArrayList<>();
+        String[] lines = body.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            try {
+                queries.add(objectMapper.readValue(lines[i], BatchRagService.BatchQuery.class));
+            } catch (JsonProcessingException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid NDJSON on line " + (i + 1) + ": " + e.getOriginalMessage());
+            }
+        }
+        return processBatch(queries);
+    }
+
+    private Flux<BatchRagService.BatchResult> processBatch(List<BatchRagService.BatchQuery> queries) {
+        if (queries.stream().anyMatch(q -> q.query() == null || q.query().isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every batch entry needs a query");
+        }
+        if (queries.size() > batchRagService.getMaxQueries()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + batchRagService.getMaxQueries() + " queries per batch");
+        }
+        return batchRagService.process(queries);
+    }
+
+    @GetMapping(path = "/stats", produces = "application/json")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("answerCache", answerCache.getStats());
+        stats.put("embeddingCache", embeddingCache.getStats());
+        stats.put("writeBehind", interactionWriter.getStats());
+        stats.put("context", contextAssembler.getStats());
+        stats.put("batch", batchRagService.getStats());
+        Map<String, Object> deploymentStats = new LinkedHashMap<>();
+        deploymentGuards.forEach((name, guard) -> deploymentStats.put(guard.getDeployment(), guard.getStats()));
+        stats.put("deployments", deploymentStats);
+        stats.put("tokenUsage", tokenUsageTracker.getStats());
+        stats.put("promptCache", tokenUsageTracker.getPromptStats());
+        stats.put("ingestion", documentService.getStats());
+        stats.put("conversations", conversationMemory.getStats());
+        vectorStoreReplica.ifAvailable(replica -> stats.put("vectorReplica", replica.getStats()));
+        if (vectorStore instanceof HybridVectorStore hybrid) {
+            stats.put("hybridRetrieval", hybrid.getStats());
+        }
+        return stats;
     }
 }
@@ -0,0 +1,57 @@
+package com.example.springaiapp.draft;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * The post uses printable ASCII characters only, plus line breaks and tabs.
+ */
+@Component
+@Order(2)
+public class AsciiRule implements DraftRule {
+
+    /** Common typographic characters and what to write instead. */
+    private static final Map<Character, String> REPLACEMENTS = Map.of(
+            '\u2018', "'", '\u2019', "'", '\u201C', "\"", '\u201D', "\"",
+            '\u2013', "-", '\u2014', "-", '\u2026', "...", '\u00A0', "a plain space");
+
+    @Override
+    public String name() {
+        return "ascii-only";
+    }
+
+    @Override
+    public List<String> check(DraftText draft) {
+        String text = draft.text();
+        Map<Character, Integer> found = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= 0x20 && c < 0x7F) || c == '\n' || c == '\r' || c == '\t') {
+                continue;
+            }
+            if (found == null) {
+                found = new TreeMap<>();
+            }
+            found.merge(c, 1, Integer::sum);
+        }
+        if (found == null) {
+            return List.of();
+        }
+
+        StringBuilder message = new StringBuilder("Use plain ASCII characters only. Replace");
+        found.forEach((c, count) -> {
+            message.append(String.format(" U+%04X (%dx)", (int) c, count));
+            String replacement = REPLACEMENTS.get(c);
+            if (replacement != null) {
+                message.append(" with ").append(replacement);
+            }
+            message.append(',');
+        });
+        message.setCharAt(message.length() - 1, '.');
+        return List.of(message.toString());
+    }
+}
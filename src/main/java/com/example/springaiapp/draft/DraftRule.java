@@ -0,0 +1,26 @@
+package com.example.springaiapp.draft;
+
+import java.util.List;
+
+/**
+ * A mechanical check of a blog draft that runs in process, before the editor model is asked.
+ *
+ * Rules are Spring beans: any {@code @Component} implementing this interface is picked up
+ * by {@link DraftRuleEngine}, ordered by {@code @Order}. A rule must be cheap and
+ * deterministic, and its messages are sent to the writer as feedback, so they should
+ * say what to change.
+ */
+public interface DraftRule {
+
+    /**
+     * Short name used in feedback and statistics.
+     */
+    String name();
+
+    /**
+     * Checks a draft.
+     *
+     * @return What is wrong with the draft, empty when it passes
+     */
+    List<String> check(DraftText draft);
+}
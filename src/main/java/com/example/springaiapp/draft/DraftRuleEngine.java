@@ -0,0 +1,109 @@
+package com.example.springaiapp.draft;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs every {@link DraftRule} over a draft and keeps per-rule statistics.
+ *
+ * The blog writer runs the engine before each editor call. A draft that breaks a rule
+ * goes straight back to the writer with the violations as feedback, and the editor model
+ * is asked only about drafts that pass, so it judges quality rather than counting
+ * sentences. A rule that throws is logged and treated as passed.
+ *
+ * Educational Note:
+ * Rules like "at most 10 sentences" or "ASCII only" have exact answers that code computes
+ * in microseconds. Asking an LLM costs a round trip of seconds plus tokens, and the model
+ * is not reliable at counting anyway.
+ */
+@Service
+public class DraftRuleEngine {
+    private static final Logger logger = LoggerFactory.getLogger(DraftRuleEngine.class);
+
+    private final List<DraftRule> rules;
+    private final Map<String, RuleStats> stats = new LinkedHashMap<>();
+    private final LongAdder drafts = new LongAdder();
+    private final LongAdder rejectedDrafts = new LongAdder();
+
+    private static final class RuleStats {
+        final LongAdder checks = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    public DraftRuleEngine(List<DraftRule> rules) {
+        this.rules = List.copyOf(rules);
+        for (DraftRule rule : this.rules) {
+            stats.put(rule.name(), new RuleStats());
+        }
+        logger.info("Draft rules: {}", stats.keySet());
+    }
+
+    /**
+     * Checks a draft against all rules.
+     *
+     * @return The violations, empty when the draft passes every rule
+     */
+    public List<DraftViolation> check(String draft) {
+        DraftText text = new DraftText(draft);
+        List<DraftViolation> violations = new ArrayList<>();
+        for (DraftRule rule : rules) {
+            RuleStats ruleStats = stats.get(rule.name());
+            long start = System.nanoTime();
+            try {
+                List<String> problems = rule.check(text);
+                if (!problems.isEmpty()) {
+                    ruleStats.hits.increment();
+                    for (String problem : problems) {
+                        violations.add(new DraftViolation(rule.name(), problem));
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Draft rule {} failed, ignoring it for this draft", rule.name(), e);
+            } finally {
+                ruleStats.checks.increment();
+                ruleStats.nanos.add(System.nanoTime() - start);
+            }
+        }
+        drafts.increment();
+        if (!violations.isEmpty()) {
+            rejectedDrafts.increment();
+        }
+        return violations;
+    }
+
+    /**
+     * Turns violations into feedback for the writer, one numbered line each.
+     */
+    public static String feedback(List<DraftViolation> violations) {
+        StringBuilder feedback = new StringBuilder("The draft breaks these requirements:");
+        for (int i = 0; i < violations.size(); i++) {
+            feedback.append('\n').append(i + 1).append(". ").append(violations.get(i).message());
+        }
+        return feedback.toString();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("drafts", drafts.sum());
+        result.put("rejectedDrafts", rejectedDrafts.sum());
+        Map<String, Object> perRule = new LinkedHashMap<>();
+        stats.forEach((name, ruleStats) -> {
+            long checks = ruleStats.checks.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("checks", checks);
+            entry.put("hits", ruleStats.hits.sum());
+            entry.put("avgMicros", checks == 0 ? 0 : ruleStats.nanos.sum() / checks / 1000.0);
+            perRule.put(name, entry);
+        });
+        result.put("rules", perRule);
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.springaiapp.draft;
+
+import java.util.List;
+
+/**
+ * A draft split once into lines, title and body, shared by all rules.
+ *
+ * The title is the first non-blank line. The body is everything after it.
+ */
+public final class DraftText {
+    private final String text;
+    private final List<String> lines;
+    private final int titleLine;
+
+    public DraftText(String text) {
+        this.text = text == null ? "" : text.strip();
+        this.lines = this.text.lines().toList();
+        int first = 0;
+        while (first < lines.size() && lines.get(first).isBlank()) {
+            first++;
+        }
+        this.titleLine = first;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public List<String> lines() {
+        return lines;
+    }
+
+    /**
+     * The first non-blank line, or an empty string for an empty draft.
+     */
+    public String title() {
+        return titleLine < lines.size() ? lines.get(titleLine).strip() : "";
+    }
+
+    /**
+     * The lines after the title.
+     */
+    public List<String> bodyLines() {
+        return titleLine < lines.size() ? lines.subList(titleLine + 1, lines.size()) : List.of();
+    }
+
+    public String body() {
+        return String.join("\n", bodyLines());
+    }
+}
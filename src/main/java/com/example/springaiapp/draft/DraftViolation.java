@@ -0,0 +1,7 @@
+package com.example.springaiapp.draft;
+
+/**
+ * A problem found by a {@link DraftRule}.
+ */
+public record DraftViolation(String rule, String message) {
+}
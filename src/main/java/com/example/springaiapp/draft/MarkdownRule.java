@@ -0,0 +1,52 @@
+package com.example.springaiapp.draft;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * The post is plain text: no Markdown or HTML markup.
+ */
+@Component
+@Order(4)
+public class MarkdownRule implements DraftRule {
+
+    private static final Map<String, Pattern> MARKUP = new LinkedHashMap<>();
+
+    static {
+        MARKUP.put("headings", Pattern.compile("^\\s*#{1,6}\\s"));
+        MARKUP.put("bullet or numbered lists", Pattern.compile("^\\s*([-*+]|\\d+[.)])\\s"));
+        MARKUP.put("block quotes", Pattern.compile("^\\s*>"));
+        MARKUP.put("code fences or inline code", Pattern.compile("```|`[^`]+`"));
+        MARKUP.put("bold or italic markers", Pattern.compile("\\*\\*[^*]+\\*\\*|__[^_]+__|(^|\\s)\\*[^*\\s][^*]*\\*"));
+        MARKUP.put("links", Pattern.compile("\\[[^\\]]+\\]\\([^)]*\\)"));
+        MARKUP.put("HTML tags", Pattern.compile("</?[a-zA-Z][^>]*>"));
+    }
+
+    @Override
+    public String name() {
+        return "no-markdown";
+    }
+
+    @Override
+    public List<String> check(DraftText draft) {
+        List<String> found = new ArrayList<>();
+        for (Map.Entry<String, Pattern> markup : MARKUP.entrySet()) {
+            for (String line : draft.lines()) {
+                if (markup.getValue().matcher(line).find()) {
+                    found.add(markup.getKey());
+                    break;
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            return List.of();
+        }
+        return List.of("Write plain text only. Remove the " + String.join(", ", found) + ".");
+    }
+}
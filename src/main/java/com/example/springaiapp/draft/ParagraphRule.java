@@ -0,0 +1,40 @@
+package com.example.springaiapp.draft;
+
+import java.util.List;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * The title and the paragraphs are separated by blank lines, and each paragraph is a
+ * single line of text.
+ */
+@Component
+@Order(5)
+public class ParagraphRule implements DraftRule {
+
+    @Override
+    public String name() {
+        return "paragraphs";
+    }
+
+    @Override
+    public List<String> check(DraftText draft) {
+        List<String> body = draft.bodyLines();
+        if (body.isEmpty()) {
+            return List.of("Write the post below the title line.");
+        }
+        if (!body.get(0).isBlank()) {
+            return List.of("Put a blank line between the title and the first paragraph.");
+        }
+        boolean previousNonBlank = false;
+        for (String line : body) {
+            boolean nonBlank = !line.isBlank();
+            if (nonBlank && previousNonBlank) {
+                return List.of("Separate paragraphs with blank lines, and do not break lines inside a paragraph.");
+            }
+            previousNonBlank = nonBlank;
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.springaiapp.draft;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * The body of the post has at most {@code app.blog.rules.max-sentences} sentences.
+ * The title line is not counted.
+ */
+@Component
+@Order(1)
+public class SentenceLimitRule implements DraftRule {
+
+    @Value("${app.blog.rules.max-sentences:10}")
+    private int maxSentences;
+
+    @Override
+    public String name() {
+        return "sentence-limit";
+    }
+
+    @Override
+    public List<String> check(DraftText draft) {
+        int sentences = SentenceSegmenter.count(draft.body());
+        if (sentences <= maxSentences) {
+            return List.of();
+        }
+        return List.of(String.format("The post has %d sentences. Cut it to at most %d sentences, not counting the title.",
+                sentences, maxSentences));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.springaiapp.draft;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Counts sentences in plain text with a single pass over the characters.
+ *
+ * A sentence ends at '.', '!' or '?' followed by whitespace or the end of the text. Runs
+ * such as "?!" or "..." and closing quotes or brackets belong to the same ending. Dots
+ * inside numbers and URLs, common abbreviations ("e.g.", "Dr.") and initials ("J. Smith")
+ * do not end a sentence. A paragraph that stops without punctuation still counts as one
+ * sentence.
+ *
+ * Educational Note:
+ * This is not a linguistic segmenter. It is built to be fast and to match what an editor
+ * would count in a short blog post, and it errs towards counting fewer sentences, so a
+ * draft is never rejected for a sentence it does not have.
+ */
+public final class SentenceSegmenter {
+
+    private static final Set<String> ABBREVIATIONS = Set.of(
+            "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "vs", "etc", "e.g", "i.e", "approx",
+            "inc", "ltd", "co", "corp", "no", "fig", "u.s", "a.m", "p.m");
+
+    private SentenceSegmenter() {}
+
+    public static int count(CharSequence text) {
+        int sentences = 0;
+        boolean inSentence = false;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '!' || c == '?') {
+                int end = i + 1;
+                while (end < length && isTerminatorOrCloser(text.charAt(end))) {
+                    end++;
+                }
+                boolean boundary = end == length || Character.isWhitespace(text.charAt(end));
+                if (inSentence && boundary && !(c == '.' && isAbbreviation(text, i))) {
+                    sentences++;
+                    inSentence = false;
+                }
+                i = end - 1;
+            } else if (c == '\n') {
+                if (inSentence && isParagraphEnd(text, i + 1)) {
+                    sentences++;
+                    inSentence = false;
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                inSentence = true;
+            }
+        }
+        return inSentence ? sentences + 1 : sentences;
+    }
+
+    private static boolean isTerminatorOrCloser(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '"' || c == '\'' || c == ')' || c == ']';
+    }
+
+    /**
+     * True when only blanks follow up to the next line break or the end of the text.
+     */
+    private static boolean isParagraphEnd(CharSequence text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return true;
+            }
+            if (c != ' ' && c != '\t' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAbbreviation(CharSequence text, int dot) {
+        int start = dot;
+        while (start > 0 && (Character.isLetter(text.charAt(start - 1)) || text.charAt(start - 1) == '.')) {
+            start--;
+        }
+        if (start == dot) {
+            return false;
+        }
+        String word = text.subSequence(start, dot).toString();
+        // A single capital letter is an initial
+        return (word.length() == 1 && Character.isUpperCase(word.charAt(0)))
+                || ABBREVIATIONS.contains(word.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.springaiapp.draft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * The first line is the title, written in ALL CAPS without Markdown heading marks.
+ */
+@Component
+@Order(3)
+public class TitleRule implements DraftRule {
+
+    private static final int MAX_TITLE_LENGTH = 120;
+
+    @Override
+    public String name() {
+        return "title";
+    }
+
+    @Override
+    public List<String> check(DraftText draft) {
+        String title = draft.title();
+        if (title.isEmpty()) {
+            return List.of("The post is empty. Start with a title line in ALL CAPS.");
+        }
+        List<String> problems = new ArrayList<>(2);
+        if (title.startsWith("#")) {
+            problems.add("Remove the '#' marks from the title line; use ALL CAPS instead.");
+        }
+        if (!title.equals(title.toUpperCase(Locale.ROOT))) {
+            problems.add("Write the title on the first line in ALL CAPS.");
+        }
+        if (title.length() > MAX_TITLE_LENGTH) {
+            problems.add("The first line should be a short title, not a paragraph.");
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.springaiapp.ingestion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.ai.document.Document;
+
+/**
+ * One token-sized piece of a corpus file.
+ *
+ * The id is derived from the file and the chunk's position in it, so ingesting the same
+ * corpus again updates the existing rows instead of adding duplicates.
+ *
+ * @param source File path relative to the corpus root
+ * @param index Position of the chunk within the file
+ * @param title Nearest markdown heading, JSONL title or file name; stored as the {@code prompt}
+ *              metadata so the chunk reads like a Q&A pair in the RAG context
+ * @param text The chunk text
+ * @param extraMetadata Additional metadata from a JSONL record
+ */
+public record CorpusChunk(String source, int index, String title, String text, Map<String, Object> extraMetadata) {
+
+    public String id() {
+        return UUID.nameUUIDFromBytes((source + "#" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    public Document toDocument() {
+        Map<String, Object> metadata = new HashMap<>(extraMetadata);
+        metadata.put("prompt", title);
+        metadata.put("source", source);
+        metadata.put("chunk", index);
+        return Document.builder().id(id()).text(text).metadata(metadata).build();
+    }
+}
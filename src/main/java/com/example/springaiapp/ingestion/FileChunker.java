@@ -0,0 +1,166 @@
+package com.example.springaiapp.ingestion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import com.example.springaiapp.service.TokenCounter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads one corpus file and cuts it into token-sized chunks, one chunk at a time.
+ *
+ * Memory use does not depend on the file size:
+ * <ul>
+ *   <li>Markdown and text files are read in sections of about {@code SECTION_CHARS}
+ *       characters, ending at a blank line where possible. Each section is split into windows; the last
+ *       window is held back and continued with the next section, so chunk boundaries do
+ *       not depend on where a section ended.</li>
+ *   <li>JSONL files are read one record per line. The record's {@code text} (or
+ *       {@code content}) is split into windows, and its {@code title} (or {@code prompt})
+ *       and {@code metadata} object are attached to every chunk.</li>
+ * </ul>
+ */
+class FileChunker implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FileChunker.class);
+
+    private static final int SECTION_CHARS = 32 * 1024;
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private final String source;
+    private final boolean jsonl;
+    private final BufferedReader reader;
+    private final TokenCounter tokenCounter;
+    private final ObjectMapper objectMapper;
+    private final int chunkTokens;
+    private final int overlapTokens;
+    private final String fileTitle;
+
+    private final Deque<CorpusChunk> pending = new ArrayDeque<>();
+    private String carry = "";
+    private String heading;
+    private int nextIndex;
+    private long lineNumber;
+    private boolean eof;
+
+    FileChunker(Path file, String source, TokenCounter tokenCounter, ObjectMapper objectMapper,
+                int chunkTokens, int overlapTokens) throws IOException {
+        this.source = source;
+        this.jsonl = isJsonl(file);
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.tokenCounter = tokenCounter;
+        this.objectMapper = objectMapper;
+        this.chunkTokens = chunkTokens;
+        this.overlapTokens = overlapTokens;
+        this.fileTitle = file.getFileName().toString();
+    }
+
+    static boolean isSupported(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".md") || name.endsWith(".markdown") || name.endsWith(".txt") || isJsonl(file);
+    }
+
+    private static boolean isJsonl(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+    }
+
+    /**
+     * @return The next chunk, or {@code null} at the end of the file
+     */
+    CorpusChunk next() throws IOException {
+        while (pending.isEmpty() && !eof) {
+            if (jsonl) {
+                readRecord();
+            } else {
+                readSection();
+            }
+        }
+        return pending.pollFirst();
+    }
+
+    private void readSection() throws IOException {
+        String title = heading == null ? fileTitle : heading;
+        StringBuilder section = new StringBuilder(carry);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                heading = line.replaceFirst("^#+\\s*", "").strip();
+            }
+            section.append(line).append('\n');
+            // Prefer to end a section at a paragraph break, but never let it grow unbounded
+            if (section.length() >= SECTION_CHARS && line.isBlank() || section.length() >= 4 * SECTION_CHARS) {
+                break;
+            }
+        }
+        eof = line == null;
+
+        List<String> windows = tokenCounter.split(section.toString(), chunkTokens, overlapTokens);
+        int complete = eof ? windows.size() : windows.size() - 1;
+        for (int i = 0; i < complete; i++) {
+            add(title, windows.get(i), Map.of());
+        }
+        carry = eof ? "" : windows.get(windows.size() - 1);
+    }
+
+    private void readRecord() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            eof = true;
+            return;
+        }
+        lineNumber++;
+        if (line.isBlank()) {
+            return;
+        }
+
+        JsonNode record;
+        try {
+            record = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            logger.warn("Skipping invalid JSON on line {} of {}: {}", lineNumber, source, e.getOriginalMessage());
+            return;
+        }
+        String text = record.hasNonNull("text") ? record.get("text").asText() : record.path("content").asText(null);
+        if (text == null || text.isBlank()) {
+            logger.warn("Skipping line {} of {}: no text or content field", lineNumber, source);
+            return;
+        }
+        String title = record.hasNonNull("title") ? record.get("title").asText()
+                : record.hasNonNull("prompt") ? record.get("prompt").asText() : fileTitle;
+        Map<String, Object> metadata = new HashMap<>();
+        if (record.path("metadata").isObject()) {
+            metadata.putAll(objectMapper.convertValue(record.get("metadata"), METADATA_TYPE));
+            // Document metadata must not contain null values
+            metadata.values().removeIf(Objects::isNull);
+        }
+
+        for (String window : tokenCounter.split(text, chunkTokens, overlapTokens)) {
+            add(title, window, metadata);
+        }
+    }
+
+    private void add(String title, String text, Map<String, Object> metadata) {
+        if (!text.isBlank()) {
+            pending.addLast(new CorpusChunk(source, nextIndex++, title, text.strip(), metadata));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
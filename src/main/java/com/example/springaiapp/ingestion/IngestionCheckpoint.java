@@ -0,0 +1,76 @@
+package com.example.springaiapp.ingestion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Remembers the last chunk of a corpus that was written to the vector store, so an
+ * interrupted ingestion can continue where it stopped.
+ *
+ * Files are processed in sorted order, so a position is simply a file and a chunk index.
+ * The checkpoint is written to a temporary file and moved into place, so a crash never
+ * leaves a half-written checkpoint behind.
+ */
+public class IngestionCheckpoint {
+
+    /**
+     * The last chunk written.
+     */
+    public record Position(String source, int chunk) {}
+
+    private final Path file;
+
+    public IngestionCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Optional<Position> load() {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read checkpoint " + file, e);
+        }
+        return Optional.of(new Position(properties.getProperty("source"),
+                Integer.parseInt(properties.getProperty("chunk"))));
+    }
+
+    public void save(Position position) {
+        Properties properties = new Properties();
+        properties.setProperty("source", position.source());
+        properties.setProperty("chunk", String.valueOf(position.chunk()));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Corpus ingestion checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint " + file, e);
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete checkpoint " + file, e);
+        }
+    }
+}
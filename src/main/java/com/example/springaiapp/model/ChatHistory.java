@@ -1,58 +1,71 @@
 package com.example.springaiapp.model;
 
+import com.example.springaiapp.vectorstore.PgVectorCodec;
+
 /**
  * Represents a chat interaction with its vector embedding.
  * 
  * This model is used to store:
+ * - The conversation session a turn belongs to
  * - User prompts (questions)
  * - AI responses
  * - Vector embeddings for semantic similarity search
  * 
  * The embeddings are stored as PostgreSQL vectors (1536 dimensions)
  * which allows for efficient similarity search using the pgvector extension.
+ * They are kept as {@code float[]}, the same 32-bit precision pgvector stores, and are
+ * sent to and read from the database in binary form with {@link PgVectorCodec}.
  */
 public class ChatHistory {
     private Long id;
+    private String sessionId;
     private String prompt;
     private String response;
-    private double[] embedding;
+    private float[] embedding;
     
     public ChatHistory() {}
     
-    public ChatHistory(String prompt, String response, double[] embedding) {
+    public ChatHistory(String prompt, String response, float[] embedding) {
         this.prompt = prompt;
         this.response = response;
         this.embedding = embedding;
     }
     
     // Constructor for database results
-    public ChatHistory(Long id, String prompt, String response, double[] embedding) {
+    public ChatHistory(Long id, String prompt, String response, float[] embedding) {
         this.id = id;
         this.prompt = prompt;
         this.response = response;
         this.embedding = embedding;
     }
     
+    // Constructor for conversation turns, which are stored without an embedding
+    public ChatHistory(Long id, String sessionId, String prompt, String response) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.prompt = prompt;
+        this.response = response;
+    }
+    
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+    
     public String getPrompt() { return prompt; }
     public void setPrompt(String prompt) { this.prompt = prompt; }
     
     public String getResponse() { return response; }
     public void setResponse(String response) { this.response = response; }
     
-    public double[] getEmbedding() { return embedding; }
-    public void setEmbedding(double[] embedding) { this.embedding = embedding; }
+    public float[] getEmbedding() { return embedding; }
+    public void setEmbedding(float[] embedding) { this.embedding = embedding; }
     
     /**
-     * Converts the embedding array to a PostgreSQL vector string.
-     * Example: [1.0, 2.0, 3.0] -> '[1.0,2.0,3.0]'
+     * Encodes the embedding in pgvector's binary format, e.g. for {@code COPY ... (FORMAT binary)}.
      */
-    public String getEmbeddingAsString() {
-        if (embedding == null) return null;
-        return "[" + String.join(",", java.util.Arrays.stream(embedding)
-            .mapToObj(String::valueOf)
-            .toArray(String[]::new)) + "]";
+    public byte[] getEmbeddingAsBinary() {
+        return embedding == null ? null : PgVectorCodec.encode(embedding);
     }
 }
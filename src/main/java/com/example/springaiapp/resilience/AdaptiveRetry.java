@@ -0,0 +1,88 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpResponse;
+
+/**
+ * Retry policy for 429 (Too Many Requests) answers from Azure OpenAI.
+ *
+ * When Azure sends {@code retry-after-ms} or {@code retry-after}, the caller waits that long
+ * plus up to 20% jitter. Otherwise it backs off exponentially with "equal jitter": half of
+ * the delay is fixed and half is random. Other errors are not retried here, because the
+ * Azure SDK already retries transient network and 5xx failures.
+ *
+ * Educational Note:
+ * Jitter matters because all callers are throttled at the same moment. Without it they
+ * would all retry at the same moment too, and be throttled again.
+ */
+public class AdaptiveRetry {
+
+    private static final HttpHeaderName RETRY_AFTER_MS = HttpHeaderName.fromString("retry-after-ms");
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public AdaptiveRetry(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the HTTP response if the failure (or one of its causes) is a 429 from Azure.
+     */
+    public static Optional<HttpResponse> throttledResponse(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException httpError && httpError.getResponse() != null
+                    && httpError.getResponse().getStatusCode() == 429) {
+                return Optional.of(httpError.getResponse());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The server-suggested wait of a 429 response, if it sent one.
+     */
+    public static Optional<Duration> retryAfter(HttpResponse response) {
+        try {
+            String millis = response.getHeaderValue(RETRY_AFTER_MS);
+            if (millis != null) {
+                return Optional.of(Duration.ofMillis(Long.parseLong(millis.trim())));
+            }
+            String seconds = response.getHeaderValue(HttpHeaderName.RETRY_AFTER);
+            if (seconds != null) {
+                return Optional.of(Duration.ofSeconds(Long.parseLong(seconds.trim())));
+            }
+        } catch (NumberFormatException e) {
+            // retry-after may also be an HTTP date, which Azure OpenAI does not send; fall back to backoff
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * How long to wait before the given retry (1 for the first retry).
+     *
+     * @param retryAfter Wait suggested by the server, if any
+     */
+    public Duration delay(int retry, Optional<Duration> retryAfter) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (retryAfter.isPresent()) {
+            long base = retryAfter.get().toMillis();
+            return Duration.ofMillis(base + (long) (base * 0.2 * random.nextDouble()));
+        }
+        long exponential = initialBackoff.toMillis() << Math.min(retry - 1, 20);
+        long capped = Math.min(exponential, maxBackoff.toMillis());
+        return Duration.ofMillis(capped / 2 + (long) (capped / 2.0 * random.nextDouble()));
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of concurrent calls to one Azure OpenAI deployment.
+ *
+ * At most {@code maxConcurrent} calls run at once. Further callers wait in a queue of at
+ * most {@code maxQueued} entries for up to {@code maxWait}:
+ * <ul>
+ *   <li>Queue full - the call is rejected right away ({@link BulkheadFullException#isQueueFull()})</li>
+ *   <li>Waited too long - the call is rejected after {@code maxWait}</li>
+ * </ul>
+ * Freed permits go to {@link CallPriority#INTERACTIVE} waiters first, but every
+ * {@code batchShare}-th permit goes to a waiting {@link CallPriority#BATCH} caller so bulk
+ * work still makes progress under sustained interactive load.
+ *
+ * Educational Note:
+ * With virtual threads a blocked request costs almost nothing, so the thread pool no longer
+ * limits how many requests hit the model. The bulkhead takes over that role and sheds load
+ * early instead of letting thousands of requests pile up on Azure's rate limit. It uses
+ * {@link ReentrantLock} rather than {@code synchronized} so waiting virtual threads do not
+ * pin their carrier thread.
+ */
+public class Bulkhead {
+    private static final Logger logger = LoggerFactory.getLogger(Bulkhead.class);
+
+    private static final class Waiter {
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final int batchShare;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> interactiveWaiters = new ArrayDeque<>();
+    private final Deque<Waiter> batchWaiters = new ArrayDeque<>();
+    private int active;
+    private int interactiveStreak;
+
+    // Guarded by lock
+    private long acquired;
+    private long rejected;
+    private long timedOut;
+    private long queuedCalls;
+    private long totalWaitNanos;
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, Duration maxWait, int batchShare) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.batchShare = Math.max(batchShare, 2);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the call while holding a permit.
+     */
+    public <T> T call(Supplier<T> call) {
+        acquire(CallPriority.current());
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Takes a permit, waiting if necessary. Every successful acquire must be paired with
+     * {@link #release()}.
+     *
+     * @throws BulkheadFullException if the queue is full or no permit became free in time
+     */
+    public void acquire(CallPriority priority) {
+        lock.lock();
+        try {
+            if (active < maxConcurrent && interactiveWaiters.isEmpty() && batchWaiters.isEmpty()) {
+                active++;
+                acquired++;
+                return;
+            }
+            if (interactiveWaiters.size() + batchWaiters.size() >= maxQueued) {
+                rejected++;
+                logger.debug("Rejecting call to {}: queue full", name);
+                throw new BulkheadFullException(name, true, maxWait,
+                        String.format("Too many concurrent calls to %s (%d running, %d queued)",
+                                name, active, maxQueued));
+            }
+
+            Deque<Waiter> queue = priority == CallPriority.BATCH ? batchWaiters : interactiveWaiters;
+            Waiter waiter = new Waiter(lock.newCondition());
+            queue.addLast(waiter);
+            queuedCalls++;
+            long start = System.nanoTime();
+            long remaining = maxWait.toNanos();
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon(queue, waiter);
+                throw new BulkheadFullException(name, false, maxWait, "Interrupted while waiting for " + name);
+            }
+            totalWaitNanos += System.nanoTime() - start;
+
+            if (!waiter.granted) {
+                queue.remove(waiter);
+                timedOut++;
+                logger.debug("Rejecting call to {}: no permit within {}", name, maxWait);
+                throw new BulkheadFullException(name, false, maxWait,
+                        String.format("No capacity for %s within %d ms", name, maxWait.toMillis()));
+            }
+            acquired++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a permit, handing it straight to the next waiter if there is one.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLocked() {
+        Waiter next = nextWaiter();
+        if (next != null) {
+            // Hand-off: the permit stays taken, so active is unchanged
+            next.granted = true;
+            next.condition.signal();
+        } else {
+            active--;
+        }
+    }
+
+    private void abandon(Deque<Waiter> queue, Waiter waiter) {
+        if (waiter.granted) {
+            // The permit was handed over just before the interrupt; pass it on
+            releaseLocked();
+        } else {
+            queue.remove(waiter);
+        }
+    }
+
+    private Waiter nextWaiter() {
+        boolean batchTurn = !batchWaiters.isEmpty()
+                && (interactiveWaiters.isEmpty() || interactiveStreak >= batchShare - 1);
+        if (batchTurn) {
+            interactiveStreak = 0;
+            return batchWaiters.pollFirst();
+        }
+        if (!interactiveWaiters.isEmpty()) {
+            interactiveStreak++;
+            return interactiveWaiters.pollFirst();
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxConcurrent", maxConcurrent);
+            stats.put("active", active);
+            stats.put("queuedInteractive", interactiveWaiters.size());
+            stats.put("queuedBatch", batchWaiters.size());
+            stats.put("acquired", acquired);
+            stats.put("rejected", rejected);
+            stats.put("timedOut", timedOut);
+            stats.put("avgQueueWaitMillis", queuedCalls == 0 ? 0
+                    : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / queuedCalls));
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead[" + name + ", maxConcurrent=" + maxConcurrent + ", maxQueued=" + maxQueued + "]";
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a {@link Bulkhead} sheds a call instead of letting it wait.
+ *
+ * {@code queueFull} distinguishes an immediate rejection (the wait queue is full) from a
+ * call that waited {@code maxWait} without getting a permit.
+ */
+public class BulkheadFullException extends OverloadedException {
+
+    private final boolean queueFull;
+
+    public BulkheadFullException(String bulkhead, boolean queueFull, Duration retryAfter, String message) {
+        super(bulkhead, retryAfter, message);
+        this.queueFull = queueFull;
+    }
+
+    public boolean isQueueFull() {
+        return queueFull;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.springaiapp.resilience;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority of an outbound LLM call when it has to wait for a {@link Bulkhead} permit.
+ *
+ * The priority is tracked per thread. Calls default to {@link #INTERACTIVE}; bulk
+ * workloads wrap their work in {@code CallPriority.BATCH.supply(...)} so a nightly job
+ * cannot push interactive users to the back of the queue.
+ */
+public enum CallPriority {
+    /** A user is waiting for the answer (HTTP request or shell command). */
+    INTERACTIVE,
+    /** Bulk work such as batch queries or ingestion. */
+    BATCH;
+
+    private static final ThreadLocal<CallPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static CallPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the supplier with this priority on the current thread.
+     */
+    public <T> T supply(Supplier<T> work) {
+        CallPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import com.azure.core.http.HttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Everything that stands between the application and one Azure OpenAI deployment.
+ *
+ * Each call goes through three layers, outermost first:
+ * 1. {@link AdaptiveRetry} - retries 429 answers after {@code retry-after} plus jitter
+ * 2. {@link QuotaRateLimiter} - waits until the call fits the RPM/TPM quota
+ * 3. {@link Bulkhead} - limits how many calls are in flight
+ *
+ * A 429 pauses the rate limiter for the whole deployment, so the retry and every other
+ * caller wait it out together instead of sending more requests that would be rejected.
+ */
+public class DeploymentGuard {
+
+    private final String deployment;
+    private final Bulkhead bulkhead;
+    private final QuotaRateLimiter rateLimiter;
+    private final AdaptiveRetry retry;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public DeploymentGuard(String deployment, Bulkhead bulkhead, QuotaRateLimiter rateLimiter, AdaptiveRetry retry) {
+        this.deployment = deployment;
+        this.bulkhead = bulkhead;
+        this.rateLimiter = rateLimiter;
+        this.retry = retry;
+    }
+
+    public String getDeployment() {
+        return deployment;
+    }
+
+    /**
+     * Runs a blocking call.
+     *
+     * @param estimatedTokens Tokens the call is expected to use, charged against the TPM quota
+     * @param call The call to the deployment
+     * @param usedTokens Reads the real token usage from the result (0 if unknown)
+     */
+    public <T> T call(int estimatedTokens, Supplier<T> call, ToIntFunction<T> usedTokens) {
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire(estimatedTokens);
+            try {
+                T result = bulkhead.call(call);
+                rateLimiter.reconcile(estimatedTokens, usedTokens.applyAsInt(result));
+                return result;
+            } catch (RuntimeException e) {
+                Optional<RuntimeException> giveUp = onFailure(e, attempt);
+                if (giveUp.isPresent()) {
+                    throw giveUp.get();
+                }
+                // The next acquire() waits out the pause together with all other callers
+            }
+        }
+    }
+
+    /**
+     * Runs a streaming call. A 429 is only retried before the first element has been
+     * emitted; after that the caller has already seen part of the answer.
+     */
+    public <T> Flux<T> stream(int estimatedTokens, Supplier<Flux<T>> call) {
+        CallPriority priority = CallPriority.current();
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicInteger attempts = new AtomicInteger();
+        return Flux.using(() -> {
+                    attempts.incrementAndGet();
+                    rateLimiter.acquire(estimatedTokens);
+                    bulkhead.acquire(priority);
+                    return bulkhead;
+                },
+                permit -> call.get().doOnNext(element -> started.set(true)),
+                Bulkhead::release)
+            // Waiting for quota and permits blocks, so do it off the subscriber's thread
+            .subscribeOn(Schedulers.boundedElastic())
+            .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable error = signal.failure();
+                if (started.get() || !(error instanceof RuntimeException runtimeError)) {
+                    return Mono.error(error);
+                }
+                Optional<RuntimeException> giveUp = onFailure(runtimeError, attempts.get());
+                return giveUp.isPresent() ? Mono.<Long>error(giveUp.get()) : Mono.just(signal.totalRetries());
+            })));
+    }
+
+    /**
+     * Handles a failed attempt.
+     *
+     * @return Empty if the call should be retried, otherwise the exception to throw
+     */
+    private Optional<RuntimeException> onFailure(RuntimeException error, int attempt) {
+        Optional<HttpResponse> throttled = AdaptiveRetry.throttledResponse(error);
+        if (throttled.isEmpty()) {
+            return Optional.of(error);
+        }
+        Duration delay = retry.delay(attempt, AdaptiveRetry.retryAfter(throttled.get()));
+        rateLimiter.pause(delay);
+        if (attempt >= retry.getMaxAttempts()) {
+            exhausted.incrementAndGet();
+            return Optional.of(new QuotaExceededException(deployment, delay,
+                    String.format("%s still throttled after %d attempts", deployment, attempt), error));
+        }
+        retries.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bulkhead", bulkhead.getStats());
+        stats.put("rateLimiter", rateLimiter.getStats());
+        stats.put("retries", retries.get());
+        stats.put("retriesExhausted", exhausted.get());
+        return stats;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.springaiapp.resilience;
+
+import com.example.springaiapp.service.TokenCounter;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+/**
+ * Chat client advisor that runs every model call through the chat deployment's
+ * {@link DeploymentGuard}.
+ *
+ * It is ordered last, right before the model call, so other advisors (such as logging)
+ * do not hold a permit. A streamed response holds its permit until the stream completes,
+ * fails or is cancelled. The TPM estimate is the prompt's token count plus the expected
+ * completion length; blocking calls are corrected with the reported usage afterwards.
+ */
+public class DeploymentGuardAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+    private final DeploymentGuard guard;
+    private final TokenCounter tokenCounter;
+    private final int expectedCompletionTokens;
+
+    public DeploymentGuardAdvisor(DeploymentGuard guard, TokenCounter tokenCounter, int expectedCompletionTokens) {
+        this.guard = guard;
+        this.tokenCounter = tokenCounter;
+        this.expectedCompletionTokens = expectedCompletionTokens;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        return guard.call(estimateTokens(advisedRequest), () -> chain.nextAroundCall(advisedRequest),
+                DeploymentGuardAdvisor::usedTokens);
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return guard.stream(estimateTokens(advisedRequest), () -> chain.nextAroundStream(advisedRequest));
+    }
+
+    private int estimateTokens(AdvisedRequest advisedRequest) {
+        return tokenCounter.countMessages(advisedRequest.toPrompt().getInstructions()) + expectedCompletionTokens;
+    }
+
+    private static int usedTokens(AdvisedResponse advisedResponse) {
+        if (advisedResponse.response() == null) {
+            return 0;
+        }
+        Usage usage = advisedResponse.response().getMetadata().getUsage();
+        return usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+    }
+
+    @Override
+    public String getName() {
+        return "DeploymentGuardAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // The model call itself is the advisor at LOWEST_PRECEDENCE
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.springaiapp.resilience;
+
+import com.example.springaiapp.service.TokenCounter;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that runs every call through the embedding deployment's
+ * {@link DeploymentGuard}. The TPM estimate is the token count of the inputs.
+ */
+public class DeploymentGuardEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final DeploymentGuard guard;
+    private final TokenCounter tokenCounter;
+
+    public DeploymentGuardEmbeddingModel(EmbeddingModel delegate, DeploymentGuard guard, TokenCounter tokenCounter) {
+        this.delegate = delegate;
+        this.guard = guard;
+        this.tokenCounter = tokenCounter;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        int estimatedTokens = request.getInstructions().stream().mapToInt(tokenCounter::count).sum();
+        return guard.call(estimatedTokens, () -> delegate.call(request), DeploymentGuardEmbeddingModel::usedTokens);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return guard.call(tokenCounter.count(document.getText()), () -> delegate.embed(document), embedding -> 0);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private static int usedTokens(EmbeddingResponse response) {
+        Usage usage = response.getMetadata().getUsage();
+        return usage == null || usage.getTotalTokens() == null ? 0 : usage.getTotalTokens();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+
+/**
+ * Base class for exceptions thrown when a call to an Azure OpenAI deployment is shed on
+ * the client side instead of being sent.
+ */
+public abstract class OverloadedException extends RuntimeException {
+
+    private final String deployment;
+    private final Duration retryAfter;
+
+    protected OverloadedException(String deployment, Duration retryAfter, String message) {
+        super(message);
+        this.deployment = deployment;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getDeployment() {
+        return deployment;
+    }
+
+    /**
+     * How long the caller should wait before trying again.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a {@link QuotaRateLimiter} cannot admit a call within its maximum wait,
+ * or when Azure OpenAI keeps answering 429 after all retries.
+ */
+public class QuotaExceededException extends OverloadedException {
+
+    public QuotaExceededException(String deployment, Duration retryAfter, String message) {
+        super(deployment, retryAfter, message);
+    }
+
+    public QuotaExceededException(String deployment, Duration retryAfter, String message, Throwable cause) {
+        this(deployment, retryAfter, message);
+        initCause(cause);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.springaiapp.resilience;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client-side limiter for the requests-per-minute (RPM) and tokens-per-minute (TPM) quota
+ * of one Azure OpenAI deployment.
+ *
+ * Two token buckets refill continuously at {@code limit / 60s}: one counts requests, the
+ * other the estimated prompt and completion tokens. A call takes one request and its
+ * estimated tokens, waiting until both buckets have enough. Callers are admitted strictly in
+ * arrival order through a fair lock, so a large request is not overtaken forever by small ones.
+ *
+ * The token estimate is corrected with the real usage once the response arrives
+ * ({@link #reconcile(int, int)}), and a 429 from Azure pauses the whole deployment for
+ * its {@code retry-after} ({@link #pause(Duration)}).
+ *
+ * Educational Note:
+ * Azure enforces the quota over short windows (roughly 10 seconds), not per minute, so the
+ * buckets only hold a sixth of the per-minute limit. This smooths bursts that would
+ * otherwise be rejected even though the minute total is within quota.
+ */
+public class QuotaRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(QuotaRateLimiter.class);
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final String name;
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
+    private final Duration maxWait;
+    private final double requestCapacity;
+    private final double tokenCapacity;
+
+    /** Fair lock: the waiter holding it is the head of the queue. */
+    private final ReentrantLock queueLock = new ReentrantLock(true);
+    /** Short critical sections updating the buckets. */
+    private final ReentrantLock bucketLock = new ReentrantLock();
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefillNanos;
+    private volatile long pausedUntilNanos;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * @param requestsPerMinute RPM quota; 0 or less disables request limiting
+     * @param tokensPerMinute TPM quota; 0 or less disables token limiting
+     * @param maxWait Longest a caller may wait before it is rejected
+     */
+    public QuotaRateLimiter(String name, int requestsPerMinute, int tokensPerMinute, Duration maxWait) {
+        this.name = name;
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxWait = maxWait;
+        this.requestCapacity = Math.max(1, requestsPerMinute / 6.0);
+        this.tokenCapacity = Math.max(1, tokensPerMinute / 6.0);
+        this.availableRequests = requestCapacity;
+        this.availableTokens = tokenCapacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Waits until the call fits the quota, then takes one request and {@code estimatedTokens}.
+     *
+     * @throws QuotaExceededException if the call cannot be admitted within the maximum wait
+     */
+    public void acquire(int estimatedTokens) {
+        // A single request larger than the bucket could never be admitted; cap it at a full bucket
+        double tokens = Math.min(Math.max(estimatedTokens, 0), tokenCapacity);
+        long start = System.nanoTime();
+        long deadline = start + maxWait.toNanos();
+        waiting.incrementAndGet();
+        try {
+            if (!queueLock.tryLock(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw reject(maxWait);
+            }
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long waitNanos = tryTake(tokens, now);
+                    if (waitNanos == 0) {
+                        break;
+                    }
+                    if (now + waitNanos > deadline) {
+                        throw reject(Duration.ofNanos(waitNanos));
+                    }
+                    // Sleep in slices so a pause() from a 429 is noticed promptly
+                    TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, MAX_SLEEP_NANOS));
+                }
+            } finally {
+                queueLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QuotaExceededException(name, maxWait, "Interrupted while waiting for quota of " + name);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        admitted.incrementAndGet();
+        if (waited > MAX_SLEEP_NANOS) {
+            delayed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Takes a request and the tokens if both are available.
+     *
+     * @return 0 if taken, otherwise how long to wait before they will be
+     */
+    private long tryTake(double tokens, long now) {
+        bucketLock.lock();
+        try {
+            long paused = pausedUntilNanos - now;
+            if (paused > 0) {
+                return paused;
+            }
+            refill(now);
+            long requestWait = requestsPerMinute <= 0 || availableRequests >= 1 ? 0
+                    : (long) ((1 - availableRequests) * NANOS_PER_MINUTE / requestsPerMinute);
+            long tokenWait = tokensPerMinute <= 0 || availableTokens >= tokens ? 0
+                    : (long) ((tokens - availableTokens) * NANOS_PER_MINUTE / tokensPerMinute);
+            long wait = Math.max(requestWait, tokenWait);
+            if (wait == 0) {
+                availableRequests -= 1;
+                availableTokens -= tokens;
+                return 0;
+            }
+            return Math.max(wait, 1);
+        } finally {
+            bucketLock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        lastRefillNanos = now;
+        if (requestsPerMinute > 0) {
+            availableRequests = Math.min(requestCapacity,
+                    availableRequests + (double) elapsed * requestsPerMinute / NANOS_PER_MINUTE);
+        }
+        if (tokensPerMinute > 0) {
+            availableTokens = Math.min(tokenCapacity,
+                    availableTokens + (double) elapsed * tokensPerMinute / NANOS_PER_MINUTE);
+        }
+    }
+
+    /**
+     * Corrects the token bucket once the real usage of a call is known. Using more tokens
+     * than estimated can drive the bucket negative, which delays the next callers.
+     */
+    public void reconcile(int estimatedTokens, int actualTokens) {
+        if (tokensPerMinute <= 0 || actualTokens <= 0) {
+            return;
+        }
+        double estimated = Math.min(Math.max(estimatedTokens, 0), tokenCapacity);
+        bucketLock.lock();
+        try {
+            availableTokens = Math.min(tokenCapacity, availableTokens + estimated - actualTokens);
+        } finally {
+            bucketLock.unlock();
+        }
+    }
+
+    /**
+     * Stops admitting calls for the given time, after Azure answered 429.
+     */
+    public void pause(Duration retryAfter) {
+        throttled.incrementAndGet();
+        bucketLock.lock();
+        try {
+            pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + retryAfter.toNanos());
+        } finally {
+            bucketLock.unlock();
+        }
+        logger.warn("Deployment {} throttled by Azure OpenAI, pausing for {} ms", name, retryAfter.toMillis());
+    }
+
+    private QuotaExceededException reject(Duration retryAfter) {
+        rejected.incrementAndGet();
+        logger.debug("Rejecting call to {}: quota not available within {}", name, maxWait);
+        return new QuotaExceededException(name, retryAfter,
+                String.format("Quota of %s exhausted (%d RPM, %d TPM)", name, requestsPerMinute, tokensPerMinute));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = admitted.get();
+        stats.put("requestsPerMinute", requestsPerMinute);
+        stats.put("tokensPerMinute", tokensPerMinute);
+        stats.put("queueDepth", waiting.get());
+        stats.put("admitted", count);
+        stats.put("delayed", delayed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("throttledByAzure", throttled.get());
+        stats.put("avgWaitMillis", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count));
+        return stats;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.springaiapp.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.springaiapp.resilience.CallPriority;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs many RAG queries in one go for bulk workloads such as nightly jobs.
+ *
+ * Queries are processed in chunks:
+ * 1. All queries of a chunk are embedded with a single {@link EmbeddingModel} call. This
+ *    fills the embedding cache, so the similarity searches that follow do not call Azure again
+ * 2. The similarity searches of a chunk run in one read-only transaction, so they share a
+ *    single pooled connection instead of checking one out per query
+ * 3. Chat completions are fanned out with a fixed concurrency limit, and each result is
+ *    emitted as soon as it is ready (not in input order)
+ *
+ * All model calls run with {@link CallPriority#BATCH}, so interactive requests go first
+ * when the deployment bulkheads are saturated.
+ *
+ * Educational Note:
+ * Per-request overhead (HTTP round trips, embedding calls, connection checkouts) dominates
+ * when questions are sent one by one. Batching it away leaves the chat completions, whose
+ * throughput is bounded by the Azure OpenAI quota.
+ */
+@Service
+public class BatchRagService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRagService.class);
+
+    /**
+     * One query of a batch. A plain JSON string is accepted as a query without id.
+     */
+    public record BatchQuery(String id, String query, boolean refresh) {
+        @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+        public static BatchQuery of(String query) {
+            return new BatchQuery(null, query, false);
+        }
+    }
+
+    /**
+     * The outcome of one query. {@code index} is the position of the query in the batch.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BatchResult(int index, String id, String query, String answer, boolean cached,
+                              String error, long latencyMillis) {}
+
+    private record PendingQuery(int index, BatchQuery query, RagService.PreparedQuery prepared,
+                                Exception error, long startNanos) {}
+
+    private final RagService ragService;
+    private final EmbeddingModel embeddingModel;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.rag.batch.embedding-batch-size:64}")
+    private int embeddingBatchSize;
+
+    @Value("${app.rag.batch.concurrency:8}")
+    private int concurrency;
+
+    @Value("${app.rag.batch.max-queries:10000}")
+    private int maxQueries;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong cachedAnswers = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public BatchRagService(RagService ragService, EmbeddingModel embeddingModel,
+                           TransactionTemplate transactionTemplate) {
+        this.ragService = ragService;
+        this.embeddingModel = embeddingModel;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public int getMaxQueries() {
+        return maxQueries;
+    }
+
+    /**
+     * Answers all queries and emits each result as soon as it is ready.
+     *
+     * @param batch The queries to answer
+     * @return Results in completion order
+     */
+    public Flux<BatchResult> process(List<BatchQuery> batch) {
+        if (batch.size() > maxQueries) {
+            throw new IllegalArgumentException(String.format(
+                    "Batch of %d queries exceeds the limit of %d", batch.size(), maxQueries));
+        }
+        logger.info("Processing batch of {} queries (embedding batch size {}, concurrency {})",
+                batch.size(), embeddingBatchSize, concurrency);
+        batches.incrementAndGet();
+
+        List<Integer> indexes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            indexes.add(i);
+        }
+        return Flux.fromIterable(indexes)
+                .buffer(embeddingBatchSize)
+                // Prepare one chunk at a time, but ahead of the completions that are still running
+                .concatMap(chunk -> Mono.fromCallable(
+                                () -> CallPriority.BATCH.supply(() -> prepareChunk(batch, chunk)))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMapIterable(pending -> pending), 1)
+                .flatMap(pending -> Mono.fromCallable(() -> CallPriority.BATCH.supply(() -> complete(pending)))
+                        .subscribeOn(Schedulers.boundedElastic()), concurrency);
+    }
+
+    private List<PendingQuery> prepareChunk(List<BatchQuery> batch, List<Integer> chunk) {
+        long start = System.nanoTime();
+        List<String> texts = chunk.stream().map(i -> batch.get(i).query()).toList();
+        try {
+            // Results are not needed here: the call fills the embedding cache for the searches below
+            embeddingModel.embed(texts);
+        } catch (Exception e) {
+            logger.warn("Batched embedding of {} queries failed, falling back to per-query embedding", texts.size(), e);
+        }
+
+        List<PendingQuery> pending = readOnlyTransaction.execute(status -> {
+            List<PendingQuery> prepared = new ArrayList<>(chunk.size());
+            for (int index : chunk) {
+                BatchQuery query = batch.get(index);
+                try {
+                    prepared.add(new PendingQuery(index, query, ragService.prepare(query.query(), query.refresh()),
+                            null, start));
+                } catch (Exception e) {
+                    logger.error("Error preparing batch query {}: {}", index, query.query(), e);
+                    prepared.add(new PendingQuery(index, query, null, e, start));
+                }
+            }
+            return prepared;
+        });
+        logger.debug("Prepared {} batch queries in {} ms", chunk.size(), (System.nanoTime() - start) / 1_000_000);
+        return pending;
+    }
+
+    private BatchResult complete(PendingQuery pending) {
+        BatchQuery query = pending.query();
+        queries.incrementAndGet();
+        String answer = null;
+        Exception error = pending.error();
+        if (error == null) {
+            try {
+                answer = ragService.complete(query.query(), pending.prepared());
+            } catch (Exception e) {
+                logger.error("Error completing batch query {}: {}", pending.index(), query.query(), e);
+                error = e;
+            }
+        }
+
+        boolean cached = error == null && pending.prepared().cachedAnswer() != null;
+        if (cached) {
+            cachedAnswers.incrementAndGet();
+        }
+        if (error != null) {
+            failures.incrementAndGet();
+        }
+        return new BatchResult(pending.index(), query.id(), query.query(), answer, cached,
+                error == null ? null : ragService.errorMessage(error),
+                (System.nanoTime() - pending.startNanos()) / 1_000_000);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.get());
+        stats.put("queries", queries.get());
+        stats.put("cachedAnswers", cachedAnswers.get());
+        stats.put("failures", failures.get());
+        stats.put("concurrency", concurrency);
+        return stats;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.springaiapp.service;
+
+/**
+ * Progress of the writer/editor loop after its last completed model call.
+ *
+ * {@link BlogWriterService} can continue the loop from a checkpoint without repeating any
+ * call it covers: the initial draft is written when {@code draft} is null, the current
+ * iteration is evaluated when {@code feedback} is null, and otherwise the draft is
+ * refined with {@code feedback}. The accumulated metadata travels in {@code result}.
+ * The class is a plain bean so it can be stored as JSON.
+ */
+public class BlogCheckpoint {
+    private String draft;
+    private int iteration;
+    private String feedback;
+    private boolean approved;
+    private BlogWriterService.BlogGenerationResult result = new BlogWriterService.BlogGenerationResult();
+
+    public String getDraft() {
+        return draft;
+    }
+
+    public void setDraft(String draft) {
+        this.draft = draft;
+    }
+
+    /**
+     * The iteration in progress, starting at 1; 0 before the initial draft.
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    public void setIteration(int iteration) {
+        this.iteration = iteration;
+    }
+
+    /**
+     * The editor feedback of the current iteration, waiting for the refinement.
+     */
+    public String getFeedback() {
+        return feedback;
+    }
+
+    public void setFeedback(String feedback) {
+        this.feedback = feedback;
+    }
+
+    public boolean isApproved() {
+        return approved;
+    }
+
+    public void setApproved(boolean approved) {
+        this.approved = approved;
+    }
+
+    public BlogWriterService.BlogGenerationResult getResult() {
+        return result;
+    }
+
+    public void setResult(BlogWriterService.BlogGenerationResult result) {
+        this.result = result;
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.springaiapp.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.springaiapp.resilience.CallPriority;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Durable, asynchronous blog generation jobs stored in the {@code blog_job} table.
+ *
+ * {@link #submit(String)} only inserts a queued job, so no request thread waits for the
+ * writer/editor loop. Every replica polls the table and claims queued jobs with
+ * {@code FOR UPDATE SKIP LOCKED}, up to the size of its worker pool. After each completed
+ * model call the loop's {@link BlogCheckpoint} is written to the job row.
+ *
+ * A running job's owner refreshes its heartbeat on every poll, but only while the job's
+ * worker makes progress: a job whose last checkpoint is older than {@code stuck-after}
+ * gets no heartbeat, so a worker hanging in a call does not hold the job forever. When a
+ * replica dies or a worker is stuck, the job stops getting heartbeats, and after
+ * {@code stale-after} any replica claims it again and continues from the last checkpoint. On a graceful shutdown, jobs are handed
+ * back right away. A checkpoint write only succeeds while the replica still owns the job,
+ * so a job is never finished twice. A job that fails {@code max-attempts} times is marked
+ * FAILED. Jobs run at {@link CallPriority#BATCH}, so they queue behind interactive
+ * requests for the model.
+ *
+ * Educational Note:
+ * A long LLM workflow inside an HTTP request loses all of its paid-for calls when the
+ * replica is scaled in or the client gives up. Persisting each step turns a restart into a
+ * short delay instead of a full rerun.
+ */
+@Service
+public class BlogJobService implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(BlogJobService.class);
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED;
+
+        public boolean isDone() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    /**
+     * A job as reported to clients. {@code draft} is the latest draft while the job runs,
+     * {@code result} the same response as {@code GET /api/blog} once it has succeeded.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BlogJob(UUID id, String topic, Status status, Integer iteration, Boolean approved,
+                          String draft, Map<String, Object> result, String error, int attempts,
+                          Instant createdAt, Instant updatedAt) {
+    }
+
+    private record ClaimedJob(UUID id, String topic, String checkpoint, int attempts) {
+    }
+
+    /** Thrown when another replica has taken the job over; the work is dropped quietly. */
+    private static final class JobLostException extends RuntimeException {
+        JobLostException(UUID id) {
+            super("Job " + id + " is no longer owned by this replica");
+        }
+    }
+
+    private static final String CLAIM_SQL = """
+            UPDATE blog_job
+            SET status = 'RUNNING', owner = ?, attempts = attempts + 1, heartbeat_at = now(), updated_at = now()
+            WHERE id IN (
+                SELECT id FROM blog_job
+                WHERE (status = 'QUEUED' OR (status = 'RUNNING' AND heartbeat_at < now() - make_interval(secs => ?)))
+                  AND attempts < ?
+                ORDER BY created_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, topic, checkpoint::text AS checkpoint, attempts
+            """;
+
+    private static final String GIVE_UP_SQL = """
+            UPDATE blog_job
+            SET status = 'FAILED', owner = NULL, updated_at = now(),
+                error = 'Abandoned by its replica ' || attempts || ' times'
+            WHERE status = 'RUNNING' AND heartbeat_at < now() - make_interval(secs => ?) AND attempts >= ?
+            """;
+
+    private static final String JOB_SQL = """
+            SELECT id, topic, status, (checkpoint->>'iteration')::int AS iteration,
+                   (checkpoint->>'approved')::boolean AS approved, checkpoint->>'draft' AS draft,
+                   result::text AS result, error, attempts, created_at, updated_at
+            FROM blog_job WHERE id = ?
+            """;
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlogWriterService blogWriterService;
+    private final BlogResultCache blogResultCache;
+    private final ObjectMapper objectMapper;
+    private final int concurrency;
+    private final Duration pollInterval;
+    private final Duration staleAfter;
+    private final Duration stuckAfter;
+    private final int maxAttempts;
+    private final Duration streamInterval;
+    private final boolean workerEnabled;
+
+    private final String ownerId = System.getenv().getOrDefault("HOSTNAME", "local") + "-"
+            + UUID.randomUUID().toString().substring(0, 8);
+    private final Semaphore slots;
+    /** Last progress (nanoTime) of the jobs this replica's workers are running. */
+    private final Map<UUID, Long> progress = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+    private volatile boolean running = false;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public BlogJobService(JdbcTemplate jdbcTemplate, BlogWriterService blogWriterService,
+                          BlogResultCache blogResultCache, ObjectMapper objectMapper,
+                          @Value("${app.blog.jobs.concurrency:2}") int concurrency,
+                          @Value("${app.blog.jobs.poll-interval:2s}") Duration pollInterval,
+                          @Value("${app.blog.jobs.stale-after:1m}") Duration staleAfter,
+                          @Value("${app.blog.jobs.stuck-after:5m}") Duration stuckAfter,
+                          @Value("${app.blog.jobs.max-attempts:3}") int maxAttempts,
+                          @Value("${app.blog.jobs.stream-interval:1s}") Duration streamInterval,
+                          @Value("${app.blog.jobs.worker-enabled:true}") boolean workerEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blogWriterService = blogWriterService;
+        this.blogResultCache = blogResultCache;
+        this.objectMapper = objectMapper;
+        this.concurrency = Math.max(concurrency, 1);
+        this.pollInterval = pollInterval;
+        this.staleAfter = staleAfter;
+        this.stuckAfter = stuckAfter;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.streamInterval = streamInterval;
+        this.workerEnabled = workerEnabled;
+        this.slots = new Semaphore(this.concurrency);
+    }
+
+    /**
+     * Queues a job and returns it. It starts as soon as a replica has a free worker.
+     */
+    public BlogJob submit(String topic) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO blog_job (id, topic, status) VALUES (?, ?, 'QUEUED')", id, topic);
+        submitted.incrementAndGet();
+        if (running) {
+            // Claim it now instead of on the next poll
+            poller.execute(this::poll);
+        }
+        return get(id).orElseThrow();
+    }
+
+    public Optional<BlogJob> get(UUID id) {
+        return jdbcTemplate.query(JOB_SQL, this::mapJob, id).stream().findFirst();
+    }
+
+    /**
+     * The job's state every time it changes, until it has succeeded or failed.
+     */
+    public Flux<BlogJob> watch(UUID id) {
+        return Flux.interval(Duration.ZERO, streamInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(() -> get(id).orElse(null)).subscribeOn(Schedulers.boundedElastic()))
+                .distinctUntilChanged(BlogJob::updatedAt)
+                .takeUntil(job -> job.status().isDone());
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Worker
+    // ---------------------------------------------------------------------------------
+
+    private void poll() {
+        try {
+            heartbeat();
+            long staleSeconds = staleAfter.toSeconds();
+            int gaveUp = jdbcTemplate.update(GIVE_UP_SQL, staleSeconds, maxAttempts);
+            if (gaveUp > 0) {
+                failed.addAndGet(gaveUp);
+                logger.warn("Marked {} abandoned blog jobs as failed after {} attempts", gaveUp, maxAttempts);
+            }
+
+            int free = slots.availablePermits();
+            if (free == 0) {
+                return;
+            }
+            List<ClaimedJob> jobs = jdbcTemplate.query(CLAIM_SQL,
+                    (rs, rowNum) -> new ClaimedJob(rs.getObject("id", UUID.class), rs.getString("topic"),
+                            rs.getString("checkpoint"), rs.getInt("attempts")),
+                    ownerId, staleSeconds, maxAttempts, free);
+            for (ClaimedJob job : jobs) {
+                slots.acquireUninterruptibly();
+                claimed.incrementAndGet();
+                progress.put(job.id(), System.nanoTime());
+                workers.execute(() -> {
+                    try {
+                        CallPriority.BATCH.supply(() -> {
+                            run(job);
+                            return null;
+                        });
+                    } finally {
+                        progress.remove(job.id());
+                        slots.release();
+                    }
+                });
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not poll blog jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Refreshes the heartbeat of the jobs whose worker has made progress within
+     * {@code stuck-after}.
+     */
+    private void heartbeat() {
+        long now = System.nanoTime();
+        Object[] live = progress.entrySet().stream()
+                .filter(entry -> now - entry.getValue() < stuckAfter.toNanos())
+                .map(Map.Entry::getKey)
+                .toArray();
+        if (live.length < progress.size()) {
+            logger.debug("{} blog jobs made no progress for {}; their heartbeat is no longer refreshed",
+                    progress.size() - live.length, stuckAfter);
+        }
+        if (live.length == 0) {
+            return;
+        }
+        jdbcTemplate.update("""
+                UPDATE blog_job SET heartbeat_at = now()
+                WHERE owner = ? AND status = 'RUNNING' AND id = ANY (?)
+                """, ps -> {
+                    ps.setString(1, ownerId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", live));
+                });
+    }
+
+    private void run(ClaimedJob job) {
+        try {
+            BlogCheckpoint checkpoint = job.checkpoint() == null ? new BlogCheckpoint()
+                    : objectMapper.readValue(job.checkpoint(), BlogCheckpoint.class);
+            if (checkpoint.getDraft() == null) {
+                Optional<Map<String, Object>> cached = blogResultCache.lookup(job.topic(), false);
+                if (cached.isPresent()) {
+                    succeed(job, cached.get(), null);
+                    logger.info("Blog job {} answered from the result cache", job.id());
+                    return;
+                }
+            } else {
+                resumed.incrementAndGet();
+                logger.info("Resuming blog job {} at iteration {} (attempt {})", job.id(), checkpoint.getIteration(),
+                        job.attempts());
+            }
+            BlogWriterService.BlogGenerationResult result = blogWriterService.generate(job.topic(), checkpoint,
+                    step -> saveCheckpoint(job.id(), step));
+            Map<String, Object> response = BlogWriterService.responseOf(job.topic(), result);
+            succeed(job, response, checkpoint);
+            blogResultCache.store(job.topic(), result, response);
+            logger.info("Blog job {} succeeded after {} ms of generation", job.id(), result.getWallClockMillis());
+        } catch (JobLostException e) {
+            logger.info(e.getMessage());
+        } catch (Exception e) {
+            if (!running) {
+                // Shutting down: stop() hands the job back without counting the attempt
+                return;
+            }
+            fail(job, e);
+        }
+    }
+
+    private void succeed(ClaimedJob job, Map<String, Object> response, BlogCheckpoint checkpoint) {
+        int updated = jdbcTemplate.update("""
+                UPDATE blog_job SET status = 'SUCCEEDED', result = ?::jsonb, checkpoint = COALESCE(?::jsonb, checkpoint),
+                    owner = NULL, updated_at = now()
+                WHERE id = ? AND owner = ? AND status = 'RUNNING'
+                """, toJson(response), checkpoint == null ? null : toJson(checkpoint), job.id(), ownerId);
+        if (updated == 0) {
+            throw new JobLostException(job.id());
+        }
+        succeeded.incrementAndGet();
+    }
+
+    private void saveCheckpoint(UUID id, BlogCheckpoint checkpoint) {
+        int updated = jdbcTemplate.update("""
+                UPDATE blog_job SET checkpoint = ?::jsonb, heartbeat_at = now(), updated_at = now()
+                WHERE id = ? AND owner = ? AND status = 'RUNNING'
+                """, toJson(checkpoint), id, ownerId);
+        if (updated == 0) {
+            throw new JobLostException(id);
+        }
+        progress.replace(id, System.nanoTime());
+        checkpoints.incrementAndGet();
+    }
+
+    /**
+     * Queues the job again, keeping its checkpoint, or fails it for good after the last attempt.
+     */
+    private void fail(ClaimedJob job, Exception e) {
+        boolean retry = job.attempts() < maxAttempts;
+        logger.warn("Blog job {} failed on attempt {} of {}{}", job.id(), job.attempts(), maxAttempts,
+                retry ? ", queued again" : "", e);
+        try {
+            jdbcTemplate.update("""
+                    UPDATE blog_job SET status = ?, error = ?, owner = NULL, heartbeat_at = NULL, updated_at = now()
+                    WHERE id = ? AND owner = ?
+                    """, retry ? "QUEUED" : "FAILED", e.getMessage(), job.id(), ownerId);
+            if (!retry) {
+                failed.incrementAndGet();
+            }
+        } catch (DataAccessException dae) {
+            logger.warn("Could not record failure of blog job {}; it is retried once it goes stale", job.id(), dae);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize blog job state", e);
+        }
+    }
+
+    private BlogJob mapJob(ResultSet rs, int rowNum) throws SQLException {
+        Map<String, Object> result = null;
+        String resultJson = rs.getString("result");
+        if (resultJson != null) {
+            try {
+                result = objectMapper.readValue(resultJson, MAP_TYPE);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unreadable result of blog job " + rs.getString("id"), e);
+            }
+        }
+        return new BlogJob(rs.getObject("id", UUID.class), rs.getString("topic"),
+                Status.valueOf(rs.getString("status")), (Integer) rs.getObject("iteration"),
+                (Boolean) rs.getObject("approved"), rs.getString("draft"), result, rs.getString("error"),
+                rs.getInt("attempts"), toInstant(rs.getTimestamp("created_at")), toInstant(rs.getTimestamp("updated_at")));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Lifecycle
+    // ---------------------------------------------------------------------------------
+
+    @Override
+    public void start() {
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blog-job-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers = Executors.newFixedThreadPool(concurrency,
+                runnable -> new Thread(runnable, "blog-job-worker-" + threadCount.incrementAndGet()));
+        running = true;
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Blog job worker {} started with {} workers", ownerId, concurrency);
+    }
+
+    /**
+     * With {@code app.blog.jobs.worker-enabled=false} this replica only submits and reports jobs.
+     */
+    @Override
+    public boolean isAutoStartup() {
+        return workerEnabled;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.shutdownNow();
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // Hand unfinished jobs back so another replica continues them right away
+            int released = jdbcTemplate.update("""
+                    UPDATE blog_job SET status = 'QUEUED', owner = NULL, heartbeat_at = NULL,
+                        attempts = GREATEST(attempts - 1, 0), updated_at = now()
+                    WHERE owner = ? AND status = 'RUNNING'
+                    """, ownerId);
+            if (released > 0) {
+                logger.info("Released {} unfinished blog jobs for other replicas", released);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Could not release blog jobs; they are claimed again once they go stale", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("owner", ownerId);
+        stats.put("workers", concurrency);
+        stats.put("busyWorkers", concurrency - slots.availablePermits());
+        stats.put("submitted", submitted.get());
+        stats.put("claimed", claimed.get());
+        stats.put("resumed", resumed.get());
+        stats.put("checkpoints", checkpoints.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
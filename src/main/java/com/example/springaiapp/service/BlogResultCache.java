@@ -0,0 +1,245 @@
+package com.example.springaiapp.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Semantic cache of approved blog posts, keyed by the embedding of their topic.
+ *
+ * There are two tiers:
+ * 1. An in-process LRU map keyed by the normalized topic, which serves repeated topics
+ *    without an embedding call or a query
+ * 2. The {@code blog_result_cache} table, searched by cosine similarity, which also
+ *    matches paraphrased topics and is shared by all replicas
+ *
+ * A post is reused when its topic's similarity is at least {@code similarity-threshold}
+ * and it is younger than {@code ttl}. Only approved posts are stored. A cached response
+ * carries {@code cached}, {@code cacheSimilarity} and {@code cachedAt} in its metadata.
+ * Cache failures are logged and the post is generated as if the cache were empty.
+ * Storing a post replaces the one stored for the same normalized topic, e.g. after a
+ * refresh; among equally similar rows a lookup prefers the newest.
+ *
+ * Embeddings are bound as text {@link PGvector} parameters, unlike the binary
+ * {@code PgVectorCodec} paths: pgvector's binary input is only reachable through
+ * {@code COPY ... (FORMAT binary)}, which does not fit one row per approved post.
+ *
+ * Educational Note:
+ * A blog post costs up to seven sequential completions and tens of seconds. One
+ * embedding and an indexed query cost a few milliseconds. The threshold is set higher
+ * than the RAG context threshold on purpose: a post about a nearby topic is a wrong
+ * answer, not a cheaper one.
+ */
+@Component
+public class BlogResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(BlogResultCache.class);
+
+    private static final String LOOKUP_SQL = """
+            SELECT response::text AS response, total_tokens, wall_clock_millis, created_at,
+                   1 - (embedding <=> ?) AS similarity
+            FROM blog_result_cache
+            WHERE created_at > now() - make_interval(secs => ?)
+            ORDER BY embedding <=> ?, created_at DESC
+            LIMIT 1
+            """;
+
+    // Replaces the post stored for the same normalized topic in one statement
+    private static final String STORE_SQL = """
+            WITH replaced AS (DELETE FROM blog_result_cache WHERE topic = ?)
+            INSERT INTO blog_result_cache (id, topic, embedding, response, total_tokens, wall_clock_millis, created_at)
+            VALUES (?, ?, ?, ?::jsonb, ?, ?, ?)
+            """;
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private record Entry(Map<String, Object> response, int totalTokens, long wallClockMillis, Instant createdAt,
+                         double similarity) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final Duration ttl;
+
+    /** Entries by normalized topic, least recently used first. */
+    private final Map<String, Entry> hot;
+
+    private final AtomicLong hotHits = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+    private final AtomicLong millisSaved = new AtomicLong();
+
+    public BlogResultCache(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel, ObjectMapper objectMapper,
+                           @Value("${app.blog.cache.enabled:true}") boolean enabled,
+                           @Value("${app.blog.cache.similarity-threshold:0.95}") double similarityThreshold,
+                           @Value("${app.blog.cache.ttl:7d}") Duration ttl,
+                           @Value("${app.blog.cache.hot-entries:256}") int hotEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingModel = embeddingModel;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttl = ttl;
+        this.hot = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > hotEntries;
+            }
+        });
+    }
+
+    /**
+     * Returns the cached response for the topic, or generates the post, stores it when it
+     * was approved and returns its response.
+     *
+     * @param refresh When true the cache is not read; the new post still replaces the old one
+     */
+    public Map<String, Object> getOrGenerate(String topic, boolean refresh,
+                                             Supplier<BlogWriterService.BlogGenerationResult> generator) {
+        Optional<Map<String, Object>> cached = lookup(topic, refresh);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        BlogWriterService.BlogGenerationResult result = generator.get();
+        Map<String, Object> response = BlogWriterService.responseOf(topic, result);
+        store(topic, result, response);
+        return response;
+    }
+
+    /**
+     * Looks up a fresh approved post for the topic or a paraphrase of it.
+     */
+    public Optional<Map<String, Object>> lookup(String topic, boolean refresh) {
+        if (!enabled || refresh) {
+            bypasses.incrementAndGet();
+            return Optional.empty();
+        }
+        String key = EmbeddingCache.normalize(topic);
+        Entry entry = hot.get(key);
+        if (entry != null && isFresh(entry)) {
+            hotHits.incrementAndGet();
+            return Optional.of(hit(entry));
+        }
+
+        try {
+            PGvector embedding = new PGvector(embeddingModel.embed(topic));
+            List<Entry> rows = jdbcTemplate.query(LOOKUP_SQL, (rs, rowNum) -> new Entry(
+                    readJson(rs.getString("response")), rs.getInt("total_tokens"), rs.getLong("wall_clock_millis"),
+                    rs.getTimestamp("created_at").toInstant(), rs.getDouble("similarity")),
+                    embedding, ttl.toSeconds(), embedding);
+            if (rows.isEmpty() || rows.get(0).similarity() < similarityThreshold) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            entry = rows.get(0);
+            hot.put(key, entry);
+            logger.debug("Blog cache hit for '{}' with similarity {}", topic, entry.similarity());
+            return Optional.of(hit(entry));
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            misses.incrementAndGet();
+            logger.warn("Blog cache lookup failed, generating the post: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores an approved post and removes expired ones. Unapproved posts are not stored.
+     */
+    public void store(String topic, BlogWriterService.BlogGenerationResult result, Map<String, Object> response) {
+        if (!enabled || !result.isApproved()) {
+            return;
+        }
+        try {
+            String key = EmbeddingCache.normalize(topic);
+            PGvector embedding = new PGvector(embeddingModel.embed(topic));
+            jdbcTemplate.update(STORE_SQL, key, UUID.randomUUID(), key, embedding,
+                    objectMapper.writeValueAsString(response), result.getTotalTokens(), result.getWallClockMillis(),
+                    Timestamp.from(Instant.now()));
+            jdbcTemplate.update("DELETE FROM blog_result_cache WHERE created_at < now() - make_interval(secs => ?)",
+                    ttl.toSeconds());
+            hot.put(key, new Entry(response, result.getTotalTokens(), result.getWallClockMillis(), Instant.now(), 1.0));
+            stores.incrementAndGet();
+        } catch (JsonProcessingException | RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("Could not cache the blog post for '{}': {}", topic, e.getMessage());
+        }
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry.createdAt().plus(ttl).isAfter(Instant.now());
+    }
+
+    /**
+     * Counts the hit and returns a copy of the response marked as cached.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> hit(Entry entry) {
+        hits.incrementAndGet();
+        tokensSaved.addAndGet(entry.totalTokens());
+        millisSaved.addAndGet(entry.wallClockMillis());
+        Map<String, Object> response = new HashMap<>(entry.response());
+        Object metadata = response.get("metadata");
+        Map<String, Object> marked = metadata instanceof Map<?, ?> map
+                ? new HashMap<>((Map<String, Object>) map) : new HashMap<>();
+        marked.put("cached", true);
+        marked.put("cacheSimilarity", entry.similarity());
+        marked.put("cachedAt", entry.createdAt().toString());
+        response.put("metadata", marked);
+        return response;
+    }
+
+    private Map<String, Object> readJson(String json) {
+        try {
+            return objectMapper.readValue(json, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable cached blog response", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        stats.put("enabled", enabled);
+        stats.put("similarityThreshold", similarityThreshold);
+        stats.put("ttlSeconds", ttl.toSeconds());
+        stats.put("hotEntries", hot.size());
+        stats.put("hits", hitCount);
+        stats.put("hotHits", hotHits.get());
+        stats.put("misses", missCount);
+        stats.put("bypasses", bypasses.get());
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("stores", stores.get());
+        stats.put("failures", failures.get());
+        stats.put("tokensSaved", tokensSaved.get());
+        stats.put("millisSaved", millisSaved.get());
+        return stats;
+    }
+}
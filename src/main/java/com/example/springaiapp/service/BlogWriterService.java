@@ -2,12 +2,34 @@ package com.example.springaiapp.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.example.springaiapp.draft.DraftRuleEngine;
+import com.example.springaiapp.draft.DraftViolation;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This service demonstrates the Evaluator Optimizer Agent pattern using Spring AI.
@@ -16,29 +38,206 @@ import java.util.List;
  * 1. Writer Agent - Creates the initial draft and refines based on feedback
  * 2. Editor Agent - Evaluates the draft and provides actionable feedback
  * 
+ * Before the Editor agent sees a draft, the {@link DraftRuleEngine} checks the mechanical
+ * requirements (length, ASCII, title, plain text, paragraphs) in process. A draft that
+ * breaks one goes straight back to the writer, and the editor model is only asked about
+ * the quality of drafts that pass.
+ * 
  * This iterative refinement continues until the content is approved or reaches max iterations.
+ * 
+ * With more than one candidate (app.blog.candidates or the candidates parameter) the
+ * service runs best-of-N instead: N writers draft concurrently, each draft is scored 0-10
+ * by its own editor call as soon as it is written, and only the best draft is refined.
+ * Once a draft scores at least app.blog.pass-score, the drafts still in flight are cancelled.
+ * 
+ * Educational Note:
+ * The time users wait for is set by the number of model calls made one after another,
+ * not by the total number of calls. Best-of-N spends extra tokens on calls that run side
+ * by side, and in return it usually needs fewer refinement rounds. The metadata reports
+ * wall-clock time, sequential calls and total tokens, so N can be tuned.
  */
 @Service
 public class BlogWriterService {
     private static final Logger logger = LoggerFactory.getLogger(BlogWriterService.class);
     private static final int MAX_ITERATIONS = 3;  // Maximum number of refinement iterations
 
+    private static final Pattern SCORE = Pattern.compile("SCORE:\\s*(\\d+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FEEDBACK = Pattern.compile("FEEDBACK:\\s*", Pattern.CASE_INSENSITIVE);
+
+    /** Steers the candidates of best-of-N apart, otherwise they tend to be near copies. */
+    private static final List<String> DRAFT_ANGLES = List.of(
+        "",
+        "Take a practical angle built around one concrete example.",
+        "Take a big-picture angle: why the topic matters and where it is heading.",
+        "Open with a short scenario the reader will recognize.",
+        "Focus on common misconceptions and what is actually true.");
+
     private final ChatClient chatClient;
+    private final AsyncTaskExecutor executor;
+    private final PipelineMetrics metrics;
+    private final DraftRuleEngine draftRules;
+    private final TokenCounter tokenCounter;
+
+    @Value("${app.blog.candidates:1}")
+    private int defaultCandidates;
+
+    @Value("${app.blog.max-candidates:5}")
+    private int maxCandidates;
+
+    @Value("${app.blog.pass-score:8}")
+    private double passScore;
 
     /**
-     * Initialize the service with a ChatClient that has SimpleLoggerAdvisor.
+     * Initialize the service with a ChatClient.
      * 
-     * The SimpleLoggerAdvisor automatically logs all AI interactions (prompts and responses)
-     * when the application's logging level is set to DEBUG for the advisor package.
+     * When the application's logging level is set to DEBUG for the advisor package, a
+     * SimpleLoggerAdvisor logs all AI interactions (prompts and responses).
      * 
      * @param chatClientBuilder Builder for creating a configured ChatClient
+     * @param applicationTaskExecutor Runs the candidates of best-of-N concurrently
+     * @param draftRules Checks the mechanical requirements before the editor is asked
+     * @param tokenCounter Counts tokens locally when a response reports no usage
+     * @param metrics Times the writer, rules, editor and iteration stages
      */
-    public BlogWriterService(ChatClient.Builder chatClientBuilder) {
-        // Add SimpleLoggerAdvisor to log requests and responses for debugging
-        this.chatClient = chatClientBuilder
-                .defaultAdvisors(new SimpleLoggerAdvisor())
-                .build();
-        logger.info("BlogWriterService initialized with ChatClient and SimpleLoggerAdvisor");
+    public BlogWriterService(ChatClient.Builder chatClientBuilder, AsyncTaskExecutor applicationTaskExecutor,
+                             DraftRuleEngine draftRules, TokenCounter tokenCounter, PipelineMetrics metrics) {
+        this.executor = applicationTaskExecutor;
+        this.draftRules = draftRules;
+        this.tokenCounter = tokenCounter;
+        this.metrics = metrics;
+        // Add SimpleLoggerAdvisor to log requests and responses for debugging. It renders the
+        // whole request and response before checking the log level, so it is only added when
+        // its DEBUG output is actually enabled
+        if (LoggerFactory.getLogger(SimpleLoggerAdvisor.class).isDebugEnabled()) {
+            chatClientBuilder.defaultAdvisors(new SimpleLoggerAdvisor());
+        }
+        this.chatClient = chatClientBuilder.build();
+        logger.info("BlogWriterService initialized with ChatClient");
+    }
+
+    /*
+     * Each prompt is a fixed system message followed by a user message with the variable
+     * parts (topic, feedback, draft) at the end. The system messages are constants, so every
+     * call of the same role starts with the same bytes and the provider can serve that
+     * prefix from its prompt cache. Both writer calls share WRITER_SYSTEM, and both editor
+     * prompts start with EDITOR_PREFIX. Keep anything that varies out of these constants.
+     */
+    static final String WRITER_SYSTEM = """
+        You are a professional blog writer. Your posts have a clear introduction, body paragraphs, and conclusion.
+        Include relevant examples and maintain a conversational yet professional tone.
+        
+        IMPORTANT FORMATTING REQUIREMENTS:
+        1. Format as plain text only (no Markdown, HTML, or special formatting)
+        2. Use simple ASCII characters only
+        3. For the title, simply put it on the first line and use ALL CAPS instead of "#" symbols
+        4. Separate paragraphs with blank lines
+        5. The blog post must be concise and contain NO MORE THAN 10 SENTENCES total.
+        6. When asked to improve a draft, provide the complete improved version while addressing the feedback.
+        """;
+
+    static final String EDITOR_PREFIX = """
+        You are a critical blog editor with extremely high standards.
+        
+        Focus on:
+        - Clarity and flow of ideas
+        - Engagement and reader interest
+        - Professional yet conversational tone
+        - Structure and organization
+        
+        The draft has already passed automated checks for length (at most 10 sentences), plain
+        ASCII text, the title line and paragraph formatting. Do not re-check these.
+        
+        """;
+
+    static final String EVALUATION_SYSTEM = EDITOR_PREFIX + """
+        Evaluate the blog draft you are given and respond with either:
+        PASS - if the draft is exceptional, well-written, engaging, and complete
+        NEEDS_IMPROVEMENT - followed by specific, actionable feedback on what to improve
+        
+        IMPORTANT EVALUATION RULES:
+        1. For the first iteration, ALWAYS respond with NEEDS_IMPROVEMENT regardless of quality.
+        2. Be extremely thorough in your evaluation and provide detailed feedback.
+        3. Even well-written drafts should receive suggestions for improvement in early iterations.
+        """;
+
+    static final String SCORING_SYSTEM = EDITOR_PREFIX + """
+        Score the blog draft you are given from 0 to 10, where 10 means exceptional, well-written,
+        engaging, and complete.
+        
+        Respond in exactly this format:
+        SCORE: <number from 0 to 10>
+        FEEDBACK: <specific, actionable feedback on what to improve>
+        """;
+
+    /** Names under which the prompts' usage and prompt cache hits are recorded. */
+    private static final String WRITER_PROMPT = "blog-writer";
+    private static final String EVALUATION_PROMPT = "blog-editor";
+    private static final String SCORING_PROMPT = "blog-scorer";
+
+    private static String initialMessage(String topic, String angle) {
+        String message = "Write a well-structured, engaging blog post about \"" + topic + "\".";
+        return angle.isEmpty() ? message : message + " " + angle;
+    }
+
+    private static String refineMessage(String feedback, String draft) {
+        return "Improve the following blog draft based on this editorial feedback:\n\nFeedback: " + feedback
+                + "\n\nCurrent Draft:\n" + draft;
+    }
+
+    private static String draftMessage(String draft) {
+        return "Draft:\n" + draft;
+    }
+
+    /**
+     * Receives the progress of the writer/editor loop as it happens.
+     * Iteration 0 is the initial draft; the refinement iterations start at 1.
+     */
+    public interface BlogProgressListener {
+        BlogProgressListener NONE = new BlogProgressListener() {};
+
+        default void onIteration(int iteration) {}
+
+        /** A fragment of a draft being written. Only called when drafts are streamed. */
+        default void onDraftToken(int iteration, String token) {}
+
+        default void onVerdict(int iteration, boolean approved, String evaluation) {}
+
+        default void onFeedback(int iteration, String feedback) {}
+    }
+
+    /**
+     * One event of a streamed blog generation. {@code type} is one of {@code iteration},
+     * {@code draft}, {@code verdict}, {@code feedback}, {@code complete} or {@code error}.
+     * The {@code complete} event carries the final content and the same metadata as {@code /api/blog}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BlogEvent(String type, Integer iteration, String text, Boolean approved,
+                            String topic, String content, Map<String, Object> metadata) {
+
+        static BlogEvent iteration(int iteration) {
+            return new BlogEvent("iteration", iteration, null, null, null, null, null);
+        }
+
+        static BlogEvent draft(int iteration, String token) {
+            return new BlogEvent("draft", iteration, token, null, null, null, null);
+        }
+
+        static BlogEvent verdict(int iteration, boolean approved, String evaluation) {
+            return new BlogEvent("verdict", iteration, evaluation, approved, null, null, null);
+        }
+
+        static BlogEvent feedback(int iteration, String feedback) {
+            return new BlogEvent("feedback", iteration, feedback, null, null, null, null);
+        }
+
+        static BlogEvent complete(String topic, BlogGenerationResult result) {
+            return new BlogEvent("complete", null, null, result.isApproved(), topic, result.getContent(),
+                    metadataOf(result));
+        }
+
+        public static BlogEvent error(String message) {
+            return new BlogEvent("error", null, message, null, null, null, null);
+        }
     }
 
     /**
@@ -59,280 +258,494 @@ public class BlogWriterService {
      * @return A refined blog post with a maximum of 10 sentences
      */
     public String generateBlogPost(String topic) {
-        logger.info("Starting blog generation for topic: {}", topic);
+        return generateBlogPostWithMetadata(topic).getContent();
+    }
+
+    /**
+     * Enhanced version of generateBlogPost that also returns metadata about the generation process.
+     * 
+     * This method ensures at least one feedback-improvement cycle occurs to demonstrate
+     * the full evaluator-optimizer pattern in action, regardless of initial draft quality.
+     * 
+     * @param topic The blog post topic
+     * @return A BlogGenerationResult containing the content and metadata
+     */
+    public BlogGenerationResult generateBlogPostWithMetadata(String topic) {
+        return generateBlogPostWithMetadata(topic, defaultCandidates);
+    }
+
+    /**
+     * Generates a blog post from the given number of candidate drafts. One candidate runs
+     * the sequential writer/editor loop; more run best-of-N (capped at app.blog.max-candidates).
+     * 
+     * @param topic The blog post topic
+     * @param candidates Number of drafts written concurrently
+     * @return A BlogGenerationResult containing the content and metadata
+     */
+    public BlogGenerationResult generateBlogPostWithMetadata(String topic, int candidates) {
+        int n = Math.min(Math.max(candidates, 1), Math.max(maxCandidates, 1));
+        return n == 1 ? generate(topic, BlogProgressListener.NONE, false) : generateBestOfN(topic, n);
+    }
+
+    /**
+     * Streaming variant of {@link #generateBlogPostWithMetadata(String)}.
+     * 
+     * Emits an event for every step of the loop as it happens: iteration boundaries, the
+     * tokens of each draft as the writer produces them, the editor's verdicts and feedback,
+     * and finally a {@code complete} event with the result. The first draft tokens arrive
+     * within about a second, instead of the whole answer after up to seven model calls.
+     * Cancelling the subscription stops the loop before its next model call.
+     * 
+     * @param topic The blog post topic
+     * @return The generation events, ending with {@code complete}
+     */
+    public Flux<BlogEvent> streamBlogPost(String topic) {
+        return Flux.<BlogEvent>create(sink -> {
+            BlogProgressListener listener = new BlogProgressListener() {
+                @Override
+                public void onIteration(int iteration) {
+                    emit(BlogEvent.iteration(iteration));
+                }
 
+                @Override
+                public void onDraftToken(int iteration, String token) {
+                    emit(BlogEvent.draft(iteration, token));
+                }
+
+                @Override
+                public void onVerdict(int iteration, boolean approved, String evaluation) {
+                    emit(BlogEvent.verdict(iteration, approved, evaluation));
+                }
+
+                @Override
+                public void onFeedback(int iteration, String feedback) {
+                    emit(BlogEvent.feedback(iteration, feedback));
+                }
+
+                private void emit(BlogEvent event) {
+                    if (sink.isCancelled()) {
+                        throw new CancellationException("Blog generation cancelled by the client");
+                    }
+                    sink.next(event);
+                }
+            };
+            try {
+                BlogGenerationResult result = generate(topic, listener, true);
+                sink.next(BlogEvent.complete(topic, result));
+                sink.complete();
+            } catch (CancellationException e) {
+                logger.info("Stopped blog generation for topic {}: client went away", topic);
+            } catch (Exception e) {
+                sink.error(e);
+            }
+        })
+        // The loop blocks on model calls, so keep it off the caller's thread
+        .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * The writer/editor loop shared by all variants, from the start.
+     * 
+     * @param listener Receives progress as it happens
+     * @param streamDrafts Stream the writer's drafts token by token to the listener
+     */
+    private BlogGenerationResult generate(String topic, BlogProgressListener listener, boolean streamDrafts) {
+        return generate(topic, new BlogCheckpoint(), checkpoint -> {}, listener, streamDrafts);
+    }
+
+    /**
+     * Runs the writer/editor loop from a checkpoint, or continues it. The checkpoint is
+     * updated and handed to {@code onCheckpoint} after every completed model call, so an
+     * interrupted run can be continued later without repeating the calls.
+     * 
+     * @param topic The blog post topic
+     * @param checkpoint Where to start; a new checkpoint starts from the beginning
+     * @param onCheckpoint Called after each completed step
+     * @return The result of the finished loop
+     */
+    public BlogGenerationResult generate(String topic, BlogCheckpoint checkpoint, Consumer<BlogCheckpoint> onCheckpoint) {
+        return generate(topic, checkpoint, onCheckpoint, BlogProgressListener.NONE, false);
+    }
+
+    private BlogGenerationResult generate(String topic, BlogCheckpoint checkpoint, Consumer<BlogCheckpoint> onCheckpoint,
+                                          BlogProgressListener listener, boolean streamDrafts) {
+        BlogGenerationResult result = checkpoint.getResult();
+        long start = System.nanoTime();
+        long previousMillis = result.getWallClockMillis();
+        Runnable saveCheckpoint = () -> {
+            result.setWallClockMillis(previousMillis + (System.nanoTime() - start) / 1_000_000);
+            onCheckpoint.accept(checkpoint);
+        };
+        
         // PHASE 1: WRITER AGENT
         // Prompt the Writer agent to generate the initial blog draft
-        String initialPrompt = String.format("""
-            You are a professional blog writer. Write a well-structured, engaging blog post about "%s".
-            The post should have a clear introduction, body paragraphs, and conclusion.
-            Include relevant examples and maintain a conversational yet professional tone.
+        if (checkpoint.getDraft() == null) {
+            logger.info("Starting blog generation with metadata for topic: {}", topic);
+            listener.onIteration(0);
+            String initialPrompt = initialMessage(topic, "");
             
-            IMPORTANT FORMATTING REQUIREMENTS:
-            1. Format as plain text only (no Markdown, HTML, or special formatting)
-            2. Use simple ASCII characters only
-            3. For the title, simply put it on the first line and use ALL CAPS instead of "#" symbols
-            4. Separate paragraphs with blank lines
-            5. The blog post must be concise and contain NO MORE THAN 10 SENTENCES total.
-            """, topic);
-        
-        // Using Spring AI's fluent API to send the prompt and get the response
-        logger.info("Sending initial draft generation prompt to AI model");
-        String draft = chatClient.prompt()
-                .user(initialPrompt)  // Creates a UserMessage with the prompt
-                .call()               // Executes the AI call
-                .content();           // Extracts the content from the response
-        logger.info("Initial draft successfully generated for topic: {}", topic);
+            // Using Spring AI's fluent API to send the prompt and get the response
+            logger.info("Sending initial draft generation prompt to AI model");
+            checkpoint.setDraft(write(WRITER_PROMPT, WRITER_SYSTEM, initialPrompt, 0, listener, streamDrafts, result));
+            checkpoint.setIteration(1);
+            result.addSequentialCalls(1);
+            saveCheckpoint.run();
+            logger.info("Initial draft successfully generated for topic: {}", topic);
+        } else {
+            logger.info("Continuing blog generation for topic {} at iteration {}", topic, checkpoint.getIteration());
+        }
 
         // PHASE 2: EVALUATION & REFINEMENT LOOP
-        // Setup for the iterative improvement process
-        boolean approved = false;
-        int iteration = 1;
-        boolean forceFirstIteration = true; // Force at least one round of feedback to demonstrate the pattern
-        
-        // Continue until we reach max iterations or get approval (but always do at least one iteration)
-        while ((!approved && iteration <= MAX_ITERATIONS) || forceFirstIteration) {
-            logger.info("Starting iteration {} of blog refinement", iteration);
+        // Continue until we reach max iterations or get approval. At least one feedback cycle
+        // always runs, because PASS is only accepted after the first iteration.
+        while (!checkpoint.isApproved() && checkpoint.getIteration() <= MAX_ITERATIONS) {
+            int iteration = checkpoint.getIteration();
+            String draft = checkpoint.getDraft();
+            long iterationStart = System.nanoTime();
             
-            // PHASE 2A: EDITOR AGENT
-            // Prompt the Editor agent to evaluate the current draft
-            String evalPrompt = String.format("""
-                You are a critical blog editor with extremely high standards. Evaluate the following blog draft and respond with either:
-                PASS - if the draft is exceptional, well-written, engaging, and complete
-                NEEDS_IMPROVEMENT - followed by specific, actionable feedback on what to improve
-                
-                Focus on:
-                - Clarity and flow of ideas
-                - Engagement and reader interest
-                - Professional yet conversational tone
-                - Structure and organization
-                - Strict adherence to the 10-sentence maximum length requirement
+            if (checkpoint.getFeedback() == null) {
+                logger.info("Starting iteration {} of blog refinement", iteration);
+                listener.onIteration(iteration);
                 
-                IMPORTANT EVALUATION RULES:
-                1. The blog MUST have no more than 10 sentences total. Count the sentences carefully.
-                2. For the first iteration, ALWAYS respond with NEEDS_IMPROVEMENT regardless of quality.
-                3. Be extremely thorough in your evaluation and provide detailed feedback.
-                4. If the draft exceeds 10 sentences, it must receive a NEEDS_IMPROVEMENT rating.
-                5. Even well-written drafts should receive suggestions for improvement in early iterations.
+                // PHASE 2A: RULE CHECKS
+                // Mechanical requirements are checked in process; a violation skips the editor call
+                List<DraftViolation> violations = metrics.time(PipelineMetrics.Stage.BLOG_RULES, () -> draftRules.check(draft));
+                String evaluation;
+                if (!violations.isEmpty()) {
+                    logger.info("Draft breaks {} rules, returning it to the writer without an editor call (iteration: {})",
+                            violations.size(), iteration);
+                    evaluation = "NEEDS_IMPROVEMENT " + DraftRuleEngine.feedback(violations);
+                } else {
+                    // PHASE 2B: EDITOR AGENT
+                    // Prompt the Editor agent to evaluate the current draft
+                    String evalPrompt = draftMessage(draft);
+                    
+                    // Send the evaluation prompt to the AI model
+                    logger.info("Sending draft for editorial evaluation (iteration: {})", iteration);
+                    evaluation = ask(EVALUATION_PROMPT, EVALUATION_SYSTEM, evalPrompt, result);
+                    result.addSequentialCalls(1);
+                }
                 
-                Draft:
-                %s
-                """, draft);
-            
-            // Send the evaluation prompt to the AI model
-            logger.info("Sending draft for editorial evaluation (iteration: {})", iteration);
-            String evaluation = chatClient.prompt()
-                    .user(evalPrompt)
-                    .call()
-                    .content();
-            
-            // After first iteration, remove the force flag
-            if (forceFirstIteration) {
-                forceFirstIteration = false;
-            }
-            
-            // Check if the Editor agent approves the draft
-            if (evaluation.toUpperCase().contains("PASS") && iteration > 1) { // Only allow PASS after first iteration
-                // Draft is approved, exit the loop
-                approved = true;
-                logger.info("Draft approved by editor on iteration {}", iteration);
-            } else {
+                // Check if the Editor agent approves the draft
+                if (violations.isEmpty() && evaluation.toUpperCase().contains("PASS") && iteration > 1) { // Only allow PASS after first iteration
+                    // Draft is approved, exit the loop
+                    checkpoint.setApproved(true);
+                    checkpoint.setIteration(iteration + 1);
+                    saveCheckpoint.run();
+                    logger.info("Draft approved by editor on iteration {}", iteration);
+                    listener.onVerdict(iteration, true, evaluation);
+                    metrics.record(PipelineMetrics.Stage.BLOG_ITERATION, System.nanoTime() - iterationStart, true);
+                    continue;
+                }
+                listener.onVerdict(iteration, false, evaluation);
                 // Draft needs improvement, extract the specific feedback
                 String feedback = extractFeedback(evaluation);
                 logger.info("Editor feedback received (iteration {}): {}", iteration, feedback);
-                
-                // PHASE 2B: WRITER AGENT (REFINEMENT)
-                // Prompt the Writer agent to refine the draft based on the feedback
-                String refinePrompt = String.format("""
-                    You are a blog writer. Improve the following blog draft based on this editorial feedback:
-                    
-                    Feedback: %s
-                    
-                    Current Draft:
-                    %s
-                    
-                    IMPORTANT REQUIREMENTS:
-                    1. The final blog post MUST NOT exceed 10 sentences total.
-                    2. Maintain a clear introduction, body, and conclusion structure.
-                    3. Keep formatting as plain text only (NO Markdown, HTML, or special formatting)
-                    4. For the title, use ALL CAPS instead of any special formatting
-                    5. Separate paragraphs with blank lines
-                    6. Use only simple ASCII characters
-                    7. Provide the complete improved version while addressing the feedback.
-                    8. Count your sentences carefully before submitting.
-                    """, feedback, draft);
-                
-                // Send the refinement prompt to the AI model
-                logger.info("Requesting draft revision based on feedback (iteration: {})", iteration);
-                draft = chatClient.prompt()
-                        .user(refinePrompt)
-                        .call()
-                        .content();
-                logger.info("Revised draft received for iteration {}", iteration);
+                result.addEditorFeedback(feedback);
+                checkpoint.setFeedback(feedback);
+                saveCheckpoint.run();
+                listener.onFeedback(iteration, feedback);
             }
-            iteration++;
+            
+            // PHASE 2C: WRITER AGENT (REFINEMENT)
+            // Prompt the Writer agent to refine the draft based on the feedback
+            String refinePrompt = refineMessage(checkpoint.getFeedback(), draft);
+            
+            // Send the refinement prompt to the AI model
+            logger.info("Requesting draft revision based on feedback (iteration: {})", iteration);
+            checkpoint.setDraft(write(WRITER_PROMPT, WRITER_SYSTEM, refinePrompt, iteration, listener, streamDrafts, result));
+            checkpoint.setFeedback(null);
+            checkpoint.setIteration(iteration + 1);
+            result.addSequentialCalls(1);
+            saveCheckpoint.run();
+            metrics.record(PipelineMetrics.Stage.BLOG_ITERATION, System.nanoTime() - iterationStart, true);
+            logger.info("Revised draft received for iteration {}", iteration);
         }
 
         // PHASE 3: FINALIZATION
-        // Return the final draft, either approved or after reaching max iterations
-        if (!approved) {
+        // Set final result properties
+        result.setContent(checkpoint.getDraft());
+        result.setApproved(checkpoint.isApproved());
+        result.setIterations(checkpoint.getIteration() - 1);
+        result.setWallClockMillis(previousMillis + (System.nanoTime() - start) / 1_000_000);
+        metrics.blogFinished(result.getIterations(), result.isApproved());
+        
+        if (!checkpoint.isApproved()) {
             logger.warn("Maximum iterations ({}) reached without editor approval", MAX_ITERATIONS);
         } else {
             logger.info("Blog post generation completed successfully for topic: {}", topic);
         }
 
-        return draft;
+        return result;
     }
 
     /**
-     * Enhanced version of generateBlogPost that also returns metadata about the generation process.
-     * 
-     * This method ensures at least one feedback-improvement cycle occurs to demonstrate
-     * the full evaluator-optimizer pattern in action, regardless of initial draft quality.
+     * Best-of-N: writes and scores N candidates concurrently, then refines only the best one.
      * 
-     * @param topic The blog post topic
-     * @return A BlogGenerationResult containing the content and metadata
+     * Each candidate is a writer call followed by an editor scoring call on a task of its
+     * own, so a draft is scored as soon as it is written. The first candidate to reach the
+     * pass score wins and the others are cancelled; otherwise the best score wins. Tokens of
+     * cancelled calls are not known and are not included in the estimate.
      */
-    public BlogGenerationResult generateBlogPostWithMetadata(String topic) {
-        logger.info("Starting blog generation with metadata for topic: {}", topic);
-        
+    private BlogGenerationResult generateBestOfN(String topic, int n) {
+        logger.info("Starting best-of-{} blog generation for topic: {}", n, topic);
+        long start = System.nanoTime();
+
         BlogGenerationResult result = new BlogGenerationResult();
-        result.setModelName("Azure OpenAI"); // We can't easily get model info without ChatResponse
-        
-        // PHASE 1: WRITER AGENT
-        // Prompt the Writer agent to generate the initial blog draft
-        String initialPrompt = String.format("""
-            You are a professional blog writer. Write a well-structured, engaging blog post about "%s".
-            The post should have a clear introduction, body paragraphs, and conclusion.
-            Include relevant examples and maintain a conversational yet professional tone.
-            
-            IMPORTANT FORMATTING REQUIREMENTS:
-            1. Format as plain text only (no Markdown, HTML, or special formatting)
-            2. Use simple ASCII characters only
-            3. For the title, simply put it on the first line and use ALL CAPS instead of "#" symbols
-            4. Separate paragraphs with blank lines
-            5. The blog post must be concise and contain NO MORE THAN 10 SENTENCES total.
-            """, topic);
-        
-        // Using Spring AI's fluent API to send the prompt and get the response
-        logger.info("Sending initial draft generation prompt to AI model");
-        String draft = chatClient.prompt()
-                .user(initialPrompt)
-                .call()
-                .content();
-        
-        // Estimate token usage as we can't directly access it
-        estimateTokenUsage(result, initialPrompt, draft);
-        logger.info("Initial draft successfully generated for topic: {}", topic);
+        result.setCandidates(n);
+        List<Double> scores = new ArrayList<>(n);
 
-        // PHASE 2: EVALUATION & REFINEMENT LOOP
-        // Setup for the iterative improvement process
-        boolean approved = false;
-        int iteration = 1;
-        boolean forceFirstIteration = true; // Force at least one feedback cycle to demonstrate the pattern
-        
-        // Continue until we reach max iterations or get approval (but always do at least one iteration)
-        while ((!approved && iteration <= MAX_ITERATIONS) || forceFirstIteration) {
-            logger.info("Starting iteration {} of blog refinement", iteration);
-            
-            // PHASE 2A: EDITOR AGENT
-            // Prompt the Editor agent to evaluate the current draft
-            String evalPrompt = String.format("""
-                You are a critical blog editor with extremely high standards. Evaluate the following blog draft and respond with either:
-                PASS - if the draft is exceptional, well-written, engaging, and complete
-                NEEDS_IMPROVEMENT - followed by specific, actionable feedback on what to improve
-                
-                Focus on:
-                - Clarity and flow of ideas
-                - Engagement and reader interest
-                - Professional yet conversational tone
-                - Structure and organization
-                - Strict adherence to the 10-sentence maximum length requirement
-                
-                IMPORTANT EVALUATION RULES:
-                1. The blog MUST have no more than 10 sentences total. Count the sentences carefully.
-                2. For the first iteration, ALWAYS respond with NEEDS_IMPROVEMENT regardless of quality.
-                3. Be extremely thorough in your evaluation and provide detailed feedback.
-                4. If the draft exceeds 10 sentences, it must receive a NEEDS_IMPROVEMENT rating.
-                5. Even well-written drafts should receive suggestions for improvement in early iterations.
-                
-                Draft:
-                %s
-                """, draft);
-            
-            // Send the evaluation prompt to the AI model
-            logger.info("Sending draft for editorial evaluation (iteration: {})", iteration);
-            String evaluation = chatClient.prompt()
-                    .user(evalPrompt)
-                    .call()
-                    .content();
-            
-            // After first iteration, remove the force flag
-            if (forceFirstIteration) {
-                forceFirstIteration = false;
-            }
-            
-            estimateTokenUsage(result, evalPrompt, evaluation);
-            
-            // Check if the Editor agent approves the draft
-            if (evaluation.toUpperCase().contains("PASS") && iteration > 1) { // Only allow PASS after first iteration
-                // Draft is approved, exit the loop
-                approved = true;
-                logger.info("Draft approved by editor on iteration {}", iteration);
-            } else {
-                // Draft needs improvement, extract the specific feedback
-                String feedback = extractFeedback(evaluation);
-                logger.info("Editor feedback received (iteration {}): {}", iteration, feedback);
-                result.addEditorFeedback(feedback);
-                
-                // PHASE 2B: WRITER AGENT (REFINEMENT)
-                // Prompt the Writer agent to refine the draft based on the feedback
-                String refinePrompt = String.format("""
-                    You are a blog writer. Improve the following blog draft based on this editorial feedback:
-                    
-                    Feedback: %s
-                    
-                    Current Draft:
-                    %s
-                    
-                    IMPORTANT REQUIREMENTS:
-                    1. The final blog post MUST NOT exceed 10 sentences total.
-                    2. Maintain a clear introduction, body, and conclusion structure.
-                    3. Keep formatting as plain text only (NO Markdown, HTML, or special formatting)
-                    4. For the title, use ALL CAPS instead of any special formatting
-                    5. Separate paragraphs with blank lines
-                    6. Use only simple ASCII characters
-                    7. Provide the complete improved version while addressing the feedback.
-                    8. Count your sentences carefully before submitting.
-                    """, feedback, draft);
-                
-                // Send the refinement prompt to the AI model
-                logger.info("Requesting draft revision based on feedback (iteration: {})", iteration);
-                String revisedDraft = chatClient.prompt()
-                        .user(refinePrompt)
-                        .call()
-                        .content();
-                
-                estimateTokenUsage(result, refinePrompt, revisedDraft);
-                draft = revisedDraft;
-                logger.info("Revised draft received for iteration {}", iteration);
+        // PHASE 1: WRITER AND EDITOR AGENTS, N AT A TIME
+        CompletionService<Candidate> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Candidate>> futures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int index = i;
+            scores.add(null);
+            futures.add(completion.submit(() -> writeCandidate(topic, index)));
+        }
+
+        Candidate best = null;
+        RuntimeException failure = null;
+        try {
+            for (int received = 0; received < n; received++) {
+                Candidate candidate;
+                try {
+                    candidate = completion.take().get();
+                } catch (ExecutionException e) {
+                    logger.warn("Candidate draft failed: {}", e.getCause().getMessage());
+                    failure = e.getCause() instanceof RuntimeException re ? re
+                            : new IllegalStateException(e.getCause());
+                    continue;
+                }
+                result.addUsage(candidate.usage().getUsage());
+                if (result.getModelName() == null) {
+                    result.setModelName(candidate.usage().getModelName());
+                }
+                scores.set(candidate.index(), candidate.score());
+                logger.info("Candidate {} scored {}", candidate.index() + 1, candidate.score());
+                if (best == null || candidate.score() > best.score()) {
+                    best = candidate;
+                }
+                if (candidate.score() >= passScore) {
+                    break;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for candidate drafts", e);
+        } finally {
+            // Once a winner is known the remaining drafts and scores are wasted tokens
+            futures.forEach(future -> future.cancel(true));
+        }
+        result.setCandidateScores(scores);
+        if (best == null) {
+            throw failure != null ? failure : new IllegalStateException("No candidate draft was generated");
+        }
+        result.addSequentialCalls(best.byRules() ? 1 : 2);
+
+        // PHASE 2: REFINE THE BEST CANDIDATE ONLY
+        String draft = best.draft();
+        Candidate current = best;
+        boolean approved = current.score() >= passScore;
+        int iteration = 0;
+        while (!approved && iteration < MAX_ITERATIONS) {
             iteration++;
+            result.addEditorFeedback(current.feedback());
+            String refinePrompt = refineMessage(current.feedback(), draft);
+            logger.info("Refining best candidate (iteration: {}, score: {})", iteration, current.score());
+            draft = ask(WRITER_PROMPT, WRITER_SYSTEM, refinePrompt, result);
+            current = score(current.index(), draft, result);
+            result.addSequentialCalls(current.byRules() ? 1 : 2);
+            approved = current.score() >= passScore;
         }
 
         // PHASE 3: FINALIZATION
-        // Set final result properties
         result.setContent(draft);
         result.setApproved(approved);
-        result.setIterations(iteration - 1);
-        
-        if (!approved) {
-            logger.warn("Maximum iterations ({}) reached without editor approval", MAX_ITERATIONS);
+        result.setIterations(iteration);
+        metrics.blogFinished(iteration, approved);
+        result.setWallClockMillis((System.nanoTime() - start) / 1_000_000);
+        logger.info("Best-of-{} blog post finished in {} ms with {} sequential calls and ~{} tokens (approved: {})",
+                n, result.getWallClockMillis(), result.getSequentialCalls(), result.getTotalTokens(), approved);
+        return result;
+    }
+
+    /**
+     * A scored draft. {@code byRules} is set when the draft broke a rule and was scored
+     * without an editor call.
+     */
+    private record Candidate(int index, String draft, double score, String feedback, boolean byRules,
+                             BlogGenerationResult usage) {}
+
+    private Candidate writeCandidate(String topic, int index) {
+        BlogGenerationResult usage = new BlogGenerationResult();
+        String angle = DRAFT_ANGLES.get(index % DRAFT_ANGLES.size());
+        String draft = ask(WRITER_PROMPT, WRITER_SYSTEM, initialMessage(topic, angle), usage);
+        return score(index, draft, usage);
+    }
+
+    /**
+     * Asks the Editor agent for a 0-10 score and feedback. A reply without a score counts as 0.
+     * A draft that breaks a rule is not sent to the editor; it scores 5 minus one point per
+     * violation, below any draft the editor would pass.
+     */
+    private Candidate score(int index, String draft, BlogGenerationResult usage) {
+        List<DraftViolation> violations = metrics.time(PipelineMetrics.Stage.BLOG_RULES, () -> draftRules.check(draft));
+        if (!violations.isEmpty()) {
+            return new Candidate(index, draft, Math.max(0, 5 - violations.size()),
+                    DraftRuleEngine.feedback(violations), true, usage);
+        }
+        String evaluation = ask(SCORING_PROMPT, SCORING_SYSTEM, draftMessage(draft), usage);
+
+        double score = 0;
+        Matcher matcher = SCORE.matcher(evaluation);
+        if (matcher.find()) {
+            score = Math.min(Double.parseDouble(matcher.group(1)), 10);
         } else {
-            logger.info("Blog post generation completed successfully for topic: {}", topic);
+            logger.warn("Editor reply for candidate {} has no score", index + 1);
         }
+        Matcher feedback = FEEDBACK.matcher(evaluation);
+        return new Candidate(index, draft, score,
+                feedback.find() ? evaluation.substring(feedback.end()).trim() : evaluation, false, usage);
+    }
 
-        return result;
+    /**
+     * Sends a prompt and adds the usage reported in the response to the result.
+     *
+     * @param name Name the call's usage is recorded under by the {@link TokenUsageAdvisor}
+     * @param system The fixed system message of the role
+     * @param prompt The variable user message
+     */
+    private String ask(String name, String system, String prompt, BlogGenerationResult result) {
+        ChatResponse response = metrics.time(stageOf(name), () -> chatClient.prompt()
+                .advisors(advisor -> advisor.param(TokenUsageAdvisor.PROMPT_NAME, name))
+                .system(system)   // Creates a SystemMessage, the stable prefix of the prompt
+                .user(prompt)     // Creates a UserMessage with the prompt
+                .call()           // Executes the AI call
+                .chatResponse()); // Keeps the metadata, which carries the token usage
+        String text = response.getResult().getOutput().getText();
+        recordUsage(result, response, TokenUsage.of(response), system, prompt, text);
+        return text;
+    }
+
+    private static PipelineMetrics.Stage stageOf(String promptName) {
+        return WRITER_PROMPT.equals(promptName) ? PipelineMetrics.Stage.BLOG_DRAFT : PipelineMetrics.Stage.BLOG_EDITOR;
+    }
+
+    /**
+     * Runs a writer prompt, streaming the draft to the listener when asked to.
+     */
+    private String write(String name, String system, String prompt, int iteration, BlogProgressListener listener,
+                         boolean streamDrafts, BlogGenerationResult result) {
+        if (!streamDrafts) {
+            return ask(name, system, prompt, result);
+        }
+        StringBuilder draft = new StringBuilder();
+        AtomicReference<ChatResponse> last = new AtomicReference<>();
+        AtomicReference<TokenUsage> reported = new AtomicReference<>();
+        long start = System.nanoTime();
+        chatClient.prompt()
+                .advisors(advisor -> advisor.param(TokenUsageAdvisor.PROMPT_NAME, name))
+                .system(system)
+                .user(prompt)
+                .stream()
+                .chatResponse()
+                .doOnNext(response -> {
+                    last.set(response);
+                    TokenUsage usage = TokenUsage.of(response);
+                    if (usage != null) {
+                        reported.set(usage);
+                    }
+                    String token = response.getResult() == null || response.getResult().getOutput() == null
+                            ? null : response.getResult().getOutput().getText();
+                    if (token != null && !token.isEmpty()) {
+                        draft.append(token);
+                        listener.onDraftToken(iteration, token);
+                    }
+                })
+                .doOnError(e -> metrics.record(stageOf(name), System.nanoTime() - start, false))
+                .blockLast();
+        metrics.record(stageOf(name), System.nanoTime() - start, true);
+        recordUsage(result, last.get(), reported.get(), system, prompt, draft.toString());
+        return draft.toString();
+    }
+
+    /**
+     * Adds the usage of one call to the result. When the response reported none, the prompt
+     * and the answer are counted with the local tokenizer and the result is marked estimated.
+     */
+    private void recordUsage(BlogGenerationResult result, ChatResponse response, TokenUsage usage,
+                             String system, String prompt, String text) {
+        if (usage == null) {
+            usage = TokenUsage.estimated(tokenCounter.countMessages(List.of(new SystemMessage(system), new UserMessage(prompt))),
+                    tokenCounter.count(text));
+        }
+        result.addUsage(usage);
+        if (result.getModelName() == null && response != null && response.getMetadata() != null) {
+            String model = response.getMetadata().getModel();
+            result.setModelName(model == null || model.isEmpty() ? null : model);
+        }
+        logger.debug("Token usage: prompt={} (cached {}), completion={}{}", usage.promptTokens(),
+                usage.cachedPromptTokens(), usage.completionTokens(), usage.estimated() ? " (estimated)" : "");
+    }
+
+    /**
+     * The response of {@code GET /api/blog}: the topic, the content and its metadata.
+     */
+    public static Map<String, Object> responseOf(String topic, BlogGenerationResult result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("topic", topic);
+        response.put("content", result.getContent());
+        response.put("metadata", metadataOf(result));
+        return response;
+    }
+
+    /**
+     * Builds the metadata of a generation result as returned by {@code /api/blog} and the
+     * {@code complete} event of the stream.
+     */
+    public static Map<String, Object> metadataOf(BlogGenerationResult result) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("iterations", result.getIterations());
+        metadata.put("approved", result.isApproved());
+        metadata.put("totalTokensUsed", result.getTotalTokens());
+        metadata.put("wallClockMillis", result.getWallClockMillis());
+        metadata.put("sequentialCalls", result.getSequentialCalls());
+        
+        if (result.getCandidates() > 1) {
+            metadata.put("candidates", result.getCandidates());
+            metadata.put("candidateScores", result.getCandidateScores());
+        }
+        
+        if (result.getEditorFeedback() != null && !result.getEditorFeedback().isEmpty()) {
+            List<Map<String, Object>> feedbackHistory = new ArrayList<>();
+            for (int i = 0; i < result.getEditorFeedback().size(); i++) {
+                Map<String, Object> feedbackEntry = new HashMap<>();
+                feedbackEntry.put("iteration", i + 1);
+                feedbackEntry.put("feedback", result.getEditorFeedback().get(i));
+                feedbackHistory.add(feedbackEntry);
+            }
+            metadata.put("editorFeedback", feedbackHistory);
+        }
+        
+        // Include token usage statistics if available
+        if (result.getPromptTokens() > 0) {
+            Map<String, Object> tokenUsage = new HashMap<>();
+            tokenUsage.put("promptTokens", result.getPromptTokens());
+            tokenUsage.put("completionTokens", result.getCompletionTokens());
+            tokenUsage.put("totalTokens", result.getTotalTokens());
+            tokenUsage.put("cachedPromptTokens", result.getCachedPromptTokens());
+            tokenUsage.put("cachedPromptShare", (double) result.getCachedPromptTokens() / result.getPromptTokens());
+            tokenUsage.put("estimated", result.isUsageEstimated());
+            metadata.put("tokenUsage", tokenUsage);
+        }
+        
+        // Include model information if available
+        if (result.getModelName() != null) {
+            metadata.put("model", result.getModelName());
+        }
+        
+        return metadata;
     }
 
     /**
@@ -352,27 +765,6 @@ public class BlogWriterService {
         return evaluation;
     }
     
-    /**
-     * Helper method to estimate token usage as we can't directly access it
-     * This is a rough estimation: approximately 4 characters per token
-     */
-    private void estimateTokenUsage(BlogGenerationResult result, String prompt, String response) {
-        try {
-            // Very rough estimation: ~4 characters per token
-            int estimatedPromptTokens = prompt.length() / 4;
-            int estimatedCompletionTokens = response.length() / 4;
-            
-            result.addPromptTokens(estimatedPromptTokens);
-            result.addCompletionTokens(estimatedCompletionTokens);
-            
-            logger.debug("Estimated token usage: prompt={}, completion={}, total={}",
-                estimatedPromptTokens, estimatedCompletionTokens, 
-                estimatedPromptTokens + estimatedCompletionTokens);
-        } catch (Exception e) {
-            logger.warn("Failed to estimate token usage", e);
-        }
-    }
-    
     /**
      * Class to hold blog generation result, including the content and metadata.
      */
@@ -385,6 +777,12 @@ public class BlogWriterService {
         private int totalTokens;
         private String modelName;
         private List<String> editorFeedback = new ArrayList<>();
+        private int cachedPromptTokens;
+        private boolean usageEstimated;
+        private long wallClockMillis;
+        private int sequentialCalls;
+        private int candidates = 1;
+        private List<Double> candidateScores = new ArrayList<>();
         
         // Getters and setters
         public String getContent() {
@@ -443,6 +841,37 @@ public class BlogWriterService {
             return totalTokens;
         }
         
+        public int getCachedPromptTokens() {
+            return cachedPromptTokens;
+        }
+        
+        /**
+         * True when at least one call reported no usage and was counted locally.
+         */
+        public boolean isUsageEstimated() {
+            return usageEstimated;
+        }
+        
+        public void setCachedPromptTokens(int cachedPromptTokens) {
+            this.cachedPromptTokens = cachedPromptTokens;
+        }
+        
+        public void setUsageEstimated(boolean usageEstimated) {
+            this.usageEstimated = usageEstimated;
+        }
+        
+        public void addUsage(TokenUsage usage) {
+            this.cachedPromptTokens += (int) usage.cachedPromptTokens();
+            this.usageEstimated |= usage.estimated();
+            addPromptTokens((int) usage.promptTokens());
+            addCompletionTokens((int) usage.completionTokens());
+        }
+        
+        @JsonIgnore
+        public TokenUsage getUsage() {
+            return new TokenUsage(promptTokens, completionTokens, cachedPromptTokens, usageEstimated);
+        }
+        
         public String getModelName() {
             return modelName;
         }
@@ -465,5 +894,41 @@ public class BlogWriterService {
             }
             this.editorFeedback.add(feedback);
         }
+        
+        public long getWallClockMillis() {
+            return wallClockMillis;
+        }
+        
+        public void setWallClockMillis(long wallClockMillis) {
+            this.wallClockMillis = wallClockMillis;
+        }
+        
+        public int getSequentialCalls() {
+            return sequentialCalls;
+        }
+        
+        public void setSequentialCalls(int sequentialCalls) {
+            this.sequentialCalls = sequentialCalls;
+        }
+        
+        public void addSequentialCalls(int calls) {
+            this.sequentialCalls += calls;
+        }
+        
+        public int getCandidates() {
+            return candidates;
+        }
+        
+        public void setCandidates(int candidates) {
+            this.candidates = candidates;
+        }
+        
+        public List<Double> getCandidateScores() {
+            return candidateScores;
+        }
+        
+        public void setCandidateScores(List<Double> candidateScores) {
+            this.candidateScores = candidateScores;
+        }
     }
 } 
\ No newline at end of file
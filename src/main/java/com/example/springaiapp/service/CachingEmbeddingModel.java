@@ -0,0 +1,92 @@
+package com.example.springaiapp.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+/**
+ * {@link EmbeddingModel} decorator that serves repeated texts from an {@link EmbeddingCache}.
+ *
+ * Every embedding call made by the PgVector store goes through {@link #call(EmbeddingRequest)},
+ * both for query embeddings in {@code similaritySearch} and for document embeddings in
+ * {@code add}. Only the texts that are not cached are sent to Azure OpenAI, in a single
+ * request, and their vectors are cached for the next caller. That request is timed as the
+ * {@code embedding} stage of the {@link PipelineMetrics}.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingCache cache;
+    private final PipelineMetrics metrics;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache cache, PipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        float[][] vectors = new float[texts.size()][];
+
+        // Collect the distinct texts that still need an embedding call
+        Map<String, List<Integer>> missingPositions = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            vectors[i] = cache.get(texts.get(i));
+            if (vectors[i] == null) {
+                missingPositions.computeIfAbsent(texts.get(i), key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata();
+        if (!missingPositions.isEmpty()) {
+            List<String> missingTexts = new ArrayList<>(missingPositions.keySet());
+            logger.debug("Embedding cache: {} of {} texts need an embedding call", missingTexts.size(), texts.size());
+
+            EmbeddingResponse response = metrics.time(PipelineMetrics.Stage.EMBEDDING,
+                    () -> delegate.call(new EmbeddingRequest(missingTexts, request.getOptions())));
+            metadata = response.getMetadata();
+            List<Embedding> results = response.getResults();
+            for (int i = 0; i < missingTexts.size(); i++) {
+                float[] vector = results.get(i).getOutput();
+                cache.put(missingTexts.get(i), vector);
+                for (int position : missingPositions.get(missingTexts.get(i))) {
+                    vectors[position] = vector;
+                }
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    public EmbeddingCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.springaiapp.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the "previous interactions" context of a RAG prompt within a token budget.
+ *
+ * Retrieved Q&A pairs are added in rank order until the budget is used up:
+ * 1. Passages that are near-duplicates of one already added are dropped
+ * 2. Passages longer than the per-passage limit are compressed extractively, keeping the
+ *    answer sentences that share the most words with the new question
+ * 3. The last passage is compressed to fit whatever budget is left
+ *
+ * Educational Note:
+ * Prompt size drives both cost and time-to-first-token. Counting with the model's own
+ * tokenizer (instead of characters) keeps the budget exact.
+ */
+@Component
+public class ContextAssembler {
+    private static final Logger logger = LoggerFactory.getLogger(ContextAssembler.class);
+
+    private static final String SEPARATOR = "\n\n";
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Smallest remainder of the budget worth filling with a compressed passage. */
+    private static final int MIN_USEFUL_TOKENS = 32;
+
+    /**
+     * The assembled context and how it was built.
+     */
+    public record AssembledContext(String text, int tokens, int passages, int compressed,
+                                   int duplicatesDropped, int droppedForBudget) {}
+
+    private final TokenCounter tokenCounter;
+
+    @Value("${app.rag.context.max-tokens:1500}")
+    private int maxTokens;
+
+    @Value("${app.rag.context.max-passage-tokens:400}")
+    private int maxPassageTokens;
+
+    @Value("${app.rag.context.duplicate-similarity:0.9}")
+    private double duplicateSimilarity;
+
+    private final AtomicLong assembled = new AtomicLong();
+    private final AtomicLong totalTokens = new AtomicLong();
+    private final AtomicLong compressedPassages = new AtomicLong();
+    private final AtomicLong droppedPassages = new AtomicLong();
+
+    public ContextAssembler(TokenCounter tokenCounter) {
+        this.tokenCounter = tokenCounter;
+    }
+
+    public AssembledContext assemble(String query, List<Document> documents) {
+        return assemble(query, documents, true);
+    }
+
+    /**
+     * Same as {@link #assemble(String, List)}; with {@code record} false the context is not
+     * counted in the statistics.
+     */
+    public AssembledContext assemble(String query, List<Document> documents, boolean record) {
+        Set<String> queryWords = words(query);
+        int separatorTokens = tokenCounter.count(SEPARATOR);
+        List<String> passages = new ArrayList<>();
+        List<Set<String>> includedWords = new ArrayList<>();
+        int used = 0;
+        int compressed = 0;
+        int duplicates = 0;
+        int overBudget = 0;
+
+        for (Document document : documents) {
+            String question = String.valueOf(document.getMetadata().get("prompt"));
+            String answer = document.getText() == null ? "" : document.getText();
+
+            Set<String> passageWords = words(question + " " + answer);
+            if (includedWords.stream().anyMatch(seen -> jaccard(seen, passageWords) >= duplicateSimilarity)) {
+                duplicates++;
+                continue;
+            }
+
+            int remaining = maxTokens - used - (passages.isEmpty() ? 0 : separatorTokens);
+            int limit = Math.min(maxPassageTokens, remaining);
+            if (limit < MIN_USEFUL_TOKENS) {
+                overBudget++;
+                continue;
+            }
+
+            String passage = format(question, answer);
+            int tokens = tokenCounter.count(passage);
+            if (tokens > limit) {
+                passage = compress(question, answer, queryWords, limit);
+                tokens = tokenCounter.count(passage);
+                compressed++;
+            }
+
+            passages.add(passage);
+            includedWords.add(passageWords);
+            used += tokens + (passages.size() > 1 ? separatorTokens : 0);
+        }
+
+        if (record) {
+            assembled.incrementAndGet();
+            totalTokens.addAndGet(used);
+            compressedPassages.addAndGet(compressed);
+            droppedPassages.addAndGet(duplicates + overBudget);
+        }
+        logger.debug("Assembled context: {} tokens from {} passages ({} compressed, {} duplicates, {} over budget)",
+                used, passages.size(), compressed, duplicates, overBudget);
+        return new AssembledContext(String.join(SEPARATOR, passages), used, passages.size(),
+                compressed, duplicates, overBudget);
+    }
+
+    /**
+     * Keeps the answer sentences most related to the query, in their original order,
+     * within the token limit. Falls back to a hard cut when even one sentence is too long.
+     */
+    private String compress(String question, String answer, Set<String> queryWords, int limit) {
+        String[] sentences = SENTENCE_BOUNDARY.split(answer.strip());
+        Integer[] byRelevance = new Integer[sentences.length];
+        Arrays.setAll(byRelevance, i -> i);
+        Arrays.sort(byRelevance, Comparator.comparingInt((Integer i) -> overlap(queryWords, sentences[i])).reversed()
+                .thenComparingInt(i -> i));
+
+        int budget = limit - tokenCounter.count(format(question, ""));
+        Set<Integer> kept = new HashSet<>();
+        for (int index : byRelevance) {
+            int sentenceTokens = tokenCounter.count(sentences[index]) + 1;
+            if (sentenceTokens <= budget) {
+                kept.add(index);
+                budget -= sentenceTokens;
+            }
+        }
+
+        if (kept.isEmpty()) {
+            return tokenCounter.truncate(format(question, answer), limit);
+        }
+        String compressedAnswer = IntStream.range(0, sentences.length)
+                .filter(kept::contains)
+                .mapToObj(i -> sentences[i])
+                .collect(Collectors.joining(" "));
+        return format(question, compressedAnswer);
+    }
+
+    private static String format(String question, String answer) {
+        return String.format("Q: %s\nA: %s", question, answer);
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() > 2) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static int overlap(Set<String> queryWords, String sentence) {
+        int count = 0;
+        for (String word : words(sentence)) {
+            if (queryWords.contains(word)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (String word : a) {
+            if (b.contains(word)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = assembled.get();
+        stats.put("maxTokens", maxTokens);
+        stats.put("assembled", count);
+        stats.put("avgTokens", count == 0 ? 0 : totalTokens.get() / count);
+        stats.put("compressedPassages", compressedPassages.get());
+        stats.put("droppedPassages", droppedPassages.get());
+        return stats;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.springaiapp.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.example.springaiapp.model.ChatHistory;
+import com.example.springaiapp.resilience.CallPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+/**
+ * Session-scoped conversation memory stored in Postgres.
+ *
+ * Every turn of a session is stored as a {@link ChatHistory} row. A prompt includes:
+ * 1. A rolling summary of the older turns
+ * 2. The most recent turns verbatim (the window), each cut to a token limit
+ *
+ * When {@code summarize-after} turns have left the window, a background task folds them
+ * into the summary with one chat call. The summary is updated incrementally from the
+ * previous summary and the new turns; it is never recomputed from the whole conversation.
+ * A turn costs one indexed query, which reads the summary together with the window. The
+ * summary watermark is therefore always the stored one, even when another instance has
+ * just moved it on. Summaries are also cached in process per session, which only decides
+ * when to summarize.
+ *
+ * Educational Note:
+ * Resending a whole conversation makes every turn slower and more expensive than the one
+ * before. With a window and a summary the prompt stays about the same size however long
+ * the conversation runs, at the cost of losing detail from the oldest turns.
+ */
+@Service
+public class ConversationMemory {
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemory.class);
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9._:-]{1,128}");
+
+    // The summary and its watermark are read with the window, so the window always starts where
+    // the stored summary ends. One row with null turn columns if the session has no pending turns
+    private static final String LOAD_SQL = """
+            SELECT s.summary, s.summarized_through, t.id, t.session_id, t.prompt, t.response
+            FROM (SELECT ?::text AS session_id) k
+            LEFT JOIN conversation_summary s ON s.session_id = k.session_id
+            LEFT JOIN LATERAL (
+                SELECT id, session_id, prompt, response FROM chat_history
+                WHERE session_id = k.session_id AND id > coalesce(s.summarized_through, 0)
+                ORDER BY id DESC
+                LIMIT ?
+            ) t ON true
+            ORDER BY t.id
+            """;
+
+    private static final String PENDING_TURNS_SQL = """
+            SELECT id, session_id, prompt, response FROM chat_history
+            WHERE session_id = ? AND id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String SAVE_SUMMARY_SQL = """
+            INSERT INTO conversation_summary (session_id, summary, summarized_through, updated_at)
+            VALUES (?, ?, ?, now())
+            ON CONFLICT (session_id) DO UPDATE
+            SET summary = EXCLUDED.summary, summarized_through = EXCLUDED.summarized_through, updated_at = now()
+            WHERE conversation_summary.summarized_through < EXCLUDED.summarized_through
+            """;
+
+    private static final String SUMMARY_PROMPT = """
+            Update the summary of a conversation between a user and an AI assistant.
+            Keep the facts, names, preferences, decisions and open questions that later turns \
+            may refer to. Drop greetings and repetition. Answer with the updated summary only, \
+            in at most %d words.
+
+            Current summary:
+            %s
+
+            New turns:
+            %s""";
+
+    private static final RowMapper<ChatHistory> TURN_MAPPER = (rs, rowNum) -> new ChatHistory(
+            rs.getLong("id"), rs.getString("session_id"), rs.getString("prompt"), rs.getString("response"));
+
+    /**
+     * The memory of a session as it goes into a prompt.
+     */
+    public record Conversation(String sessionId, String summary, List<ChatHistory> recentTurns) {
+        public boolean isEmpty() {
+            return summary == null && recentTurns.isEmpty();
+        }
+    }
+
+    private record Summary(String text, long summarizedThrough) {
+        static final Summary NONE = new Summary(null, 0);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatClient chatClient;
+    private final TokenCounter tokenCounter;
+    private final AsyncTaskExecutor executor;
+    private final int windowTurns;
+    private final int summarizeAfter;
+    private final int maxTurnTokens;
+    private final int summaryTokens;
+
+    /** Summaries by session id, least recently used first. */
+    private final Map<String, Summary> summaries;
+    private final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong turns = new AtomicLong();
+    private final AtomicLong summaryHits = new AtomicLong();
+    private final AtomicLong summaryMisses = new AtomicLong();
+    private final AtomicLong summarizations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public ConversationMemory(JdbcTemplate jdbcTemplate, ChatClient.Builder chatClientBuilder,
+                              TokenCounter tokenCounter, AsyncTaskExecutor applicationTaskExecutor,
+                              @Value("${app.conversation.window-turns:6}") int windowTurns,
+                              @Value("${app.conversation.summarize-after:4}") int summarizeAfter,
+                              @Value("${app.conversation.max-turn-tokens:400}") int maxTurnTokens,
+                              @Value("${app.conversation.summary-tokens:300}") int summaryTokens,
+                              @Value("${app.conversation.cache-size:1000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chatClient = chatClientBuilder.build();
+        this.tokenCounter = tokenCounter;
+        this.executor = applicationTaskExecutor;
+        this.windowTurns = Math.max(windowTurns, 1);
+        this.summarizeAfter = Math.max(summarizeAfter, 1);
+        this.maxTurnTokens = maxTurnTokens;
+        this.summaryTokens = summaryTokens;
+        this.summaries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Summary> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public static boolean isValidSessionId(String sessionId) {
+        return sessionId != null && SESSION_ID.matcher(sessionId).matches();
+    }
+
+    /**
+     * Loads the summary and the recent turns of a session.
+     */
+    public Conversation load(String sessionId) {
+        List<ChatHistory> recent = new ArrayList<>();
+        Summary[] summary = {Summary.NONE};
+        // Turns waiting to be summarized stay in the prompt, so nothing is lost while the summary catches up
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            if (rs.getString("summary") != null) {
+                summary[0] = new Summary(rs.getString("summary"), rs.getLong("summarized_through"));
+            }
+            if (rs.getObject("id") != null) {
+                recent.add(TURN_MAPPER.mapRow(rs, recent.size()));
+            }
+        }, sessionId, windowTurns + summarizeAfter);
+        // Another instance may have moved the summary on; keep the cache at least as new as the database
+        summaries.merge(sessionId, summary[0],
+                (cached, loaded) -> loaded.summarizedThrough() >= cached.summarizedThrough() ? loaded : cached);
+        return new Conversation(sessionId, summary[0].text(), recent);
+    }
+
+    /**
+     * The conversation as chat messages: the summary as a system message, then the
+     * recent turns as user and assistant messages.
+     */
+    public List<Message> messages(Conversation conversation) {
+        List<Message> messages = new ArrayList<>(conversation.recentTurns().size() * 2 + 1);
+        if (conversation.summary() != null) {
+            messages.add(new SystemMessage("Summary of the earlier conversation:\n" + conversation.summary()));
+        }
+        for (ChatHistory turn : conversation.recentTurns()) {
+            messages.add(new UserMessage(tokenCounter.truncate(turn.getPrompt(), maxTurnTokens)));
+            messages.add(new AssistantMessage(tokenCounter.truncate(turn.getResponse(), maxTurnTokens)));
+        }
+        return messages;
+    }
+
+    /**
+     * Stores a turn and, when enough turns have left the window, starts a background
+     * summarization. A failure is logged; it does not fail the request that was answered.
+     */
+    public void append(String sessionId, String prompt, String response) {
+        try {
+            jdbcTemplate.update("INSERT INTO chat_history (session_id, prompt, response) VALUES (?, ?, ?)",
+                    sessionId, prompt, response);
+            turns.incrementAndGet();
+            Integer pending = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM chat_history WHERE session_id = ? AND id > ?", Integer.class,
+                    sessionId, summary(sessionId).summarizedThrough());
+            if (pending != null && pending >= windowTurns + summarizeAfter && summarizing.add(sessionId)) {
+                executor.execute(() -> {
+                    try {
+                        summarize(sessionId);
+                    } finally {
+                        summarizing.remove(sessionId);
+                    }
+                });
+            }
+        } catch (DataAccessException e) {
+            failures.incrementAndGet();
+            logger.warn("Could not save turn of session {}", sessionId, e);
+        }
+    }
+
+    /**
+     * Folds the turns that have left the window into the session's summary.
+     */
+    private void summarize(String sessionId) {
+        try {
+            long start = System.nanoTime();
+            // Read the summary from the database, another instance may have moved it on
+            Summary current = loadSummary(sessionId);
+            List<ChatHistory> pending = jdbcTemplate.query(PENDING_TURNS_SQL, TURN_MAPPER,
+                    sessionId, current.summarizedThrough(), 10 * (windowTurns + summarizeAfter));
+            int fold = pending.size() - windowTurns;
+            if (fold <= 0) {
+                summaries.put(sessionId, current);
+                return;
+            }
+
+            StringBuilder newTurns = new StringBuilder();
+            for (ChatHistory turn : pending.subList(0, fold)) {
+                newTurns.append("User: ").append(tokenCounter.truncate(turn.getPrompt(), maxTurnTokens)).append('\n')
+                        .append("Assistant: ").append(tokenCounter.truncate(turn.getResponse(), maxTurnTokens))
+                        .append("\n\n");
+            }
+            String prompt = String.format(SUMMARY_PROMPT, summaryTokens * 3 / 4,
+                    current.text() == null ? "(none yet)" : current.text(), newTurns);
+            String text = CallPriority.BATCH.supply(() -> chatClient.prompt().user(prompt).call().content());
+            Summary updated = new Summary(tokenCounter.truncate(text.strip(), summaryTokens),
+                    pending.get(fold - 1).getId());
+
+            jdbcTemplate.update(SAVE_SUMMARY_SQL, sessionId, updated.text(), updated.summarizedThrough());
+            summaries.put(sessionId, updated);
+            summarizations.incrementAndGet();
+            logger.debug("Summarized {} turns of session {} in {} ms", fold, sessionId,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warn("Could not summarize session {}, will retry after the next turn", sessionId, e);
+        }
+    }
+
+    private Summary summary(String sessionId) {
+        Summary cached = summaries.get(sessionId);
+        if (cached != null) {
+            summaryHits.incrementAndGet();
+            return cached;
+        }
+        summaryMisses.incrementAndGet();
+        Summary loaded = loadSummary(sessionId);
+        summaries.put(sessionId, loaded);
+        return loaded;
+    }
+
+    private Summary loadSummary(String sessionId) {
+        List<Summary> rows = jdbcTemplate.query(
+                "SELECT summary, summarized_through FROM conversation_summary WHERE session_id = ?",
+                (rs, rowNum) -> new Summary(rs.getString("summary"), rs.getLong("summarized_through")), sessionId);
+        return rows.isEmpty() ? Summary.NONE : rows.get(0);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("turns", turns.get());
+        stats.put("cachedSessions", summaries.size());
+        stats.put("summaryCacheHits", summaryHits.get());
+        stats.put("summaryCacheMisses", summaryMisses.get());
+        stats.put("summarizations", summarizations.get());
+        stats.put("failures", failures.get());
+        stats.put("windowTurns", windowTurns);
+        return stats;
+    }
+}
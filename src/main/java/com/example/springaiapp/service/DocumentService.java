@@ -1,19 +1,33 @@
 package com.example.springaiapp.service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.example.springaiapp.resilience.CallPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 
 /**
  * Service for pre-loading documents stored using PG Vector. 
+ * 
+ * Only documents that are new or changed since the last run are embedded and written.
+ * The {@link IngestionManifest} remembers a content hash per document id, so a new replica
+ * starting against an already loaded database makes no embedding calls at all.
+ * 
+ * By default ingestion runs in the background once the application is ready, so startup
+ * does not wait for Azure OpenAI. Set {@code app.ingestion.background=false} to load the
+ * documents before the application starts serving requests.
  */
 @Service
 public class DocumentService {
@@ -23,11 +37,85 @@ public class DocumentService {
     @Autowired
     VectorStore vectorStore;
 
+    @Autowired
+    IngestionManifest manifest;
+
+    @Autowired
+    AsyncTaskExecutor applicationTaskExecutor;
+
+    @Value("${app.ingestion.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ingestion.background:true}")
+    private boolean background;
+
+    @Value("${app.ingestion.batch-size:32}")
+    private int batchSize;
+
+    private volatile Map<String, Object> lastRun = Map.of("status", "pending");
+
     @PostConstruct
     private void init() {
-        vectorStore.add(documents);
-        logger.info("DocumentService initialized with. Document count: {}", 
-                   documents.size());
+        if (enabled && !background) {
+            ingest(documents);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void ingestInBackground() {
+        if (enabled && background) {
+            applicationTaskExecutor.execute(() -> {
+                try {
+                    ingest(documents);
+                } catch (Exception e) {
+                    logger.error("Background document ingestion failed", e);
+                    lastRun = Map.of("status", "failed", "error", String.valueOf(e.getMessage()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Embeds and stores the documents that are new or changed, in batches.
+     * 
+     * @return Number of documents written
+     */
+    public int ingest(List<Document> candidates) {
+        long start = System.nanoTime();
+        Map<String, String> hashes = new LinkedHashMap<>();
+        candidates.forEach(document -> hashes.put(document.getId(), IngestionManifest.contentHash(document)));
+        Map<String, String> known = manifest.hashes(hashes.keySet());
+        List<Document> changed = candidates.stream()
+            .filter(document -> !hashes.get(document.getId()).equals(known.get(document.getId())))
+            .toList();
+
+        for (int from = 0; from < changed.size(); from += batchSize) {
+            List<Document> batch = changed.subList(from, Math.min(from + batchSize, changed.size()));
+            // Ingestion is bulk work: let interactive requests go first at the deployment bulkhead
+            CallPriority.BATCH.supply(() -> {
+                vectorStore.add(batch);
+                return null;
+            });
+            Map<String, String> written = new LinkedHashMap<>();
+            batch.forEach(document -> written.put(document.getId(), hashes.get(document.getId())));
+            manifest.record(written);
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("status", "completed");
+        run.put("documents", candidates.size());
+        run.put("ingested", changed.size());
+        run.put("unchanged", candidates.size() - changed.size());
+        run.put("millis", millis);
+        lastRun = run;
+        logger.info("DocumentService ingested {} new or changed documents ({} unchanged) in {} ms",
+                   changed.size(), candidates.size() - changed.size(), millis);
+        return changed.size();
+    }
+
+    public Map<String, Object> getStats() {
+        return lastRun;
     }
 
     List<Document> documents = List.of(
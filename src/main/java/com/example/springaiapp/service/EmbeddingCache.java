@@ -0,0 +1,164 @@
+package com.example.springaiapp.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of query embeddings, keyed by whitespace-normalized text.
+ *
+ * Vectors are packed into off-heap segments of fixed-size slots instead of being kept
+ * as individual {@code float[]} objects, so a large cache adds almost nothing for the
+ * garbage collector to trace. Only the key-to-slot index lives on the heap.
+ *
+ * Entries are evicted in least-recently-used order when either the entry limit or the
+ * weight limit (approximate bytes for vector plus key) is exceeded.
+ */
+public class EmbeddingCache {
+
+    /** Number of vector slots allocated together in one off-heap segment. */
+    private static final int SEGMENT_SLOTS = 256;
+
+    /** Approximate per-entry overhead of the heap index (map entry, key object, slot). */
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final int dimensions;
+    private final int maxEntries;
+    private final long maxWeightBytes;
+
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private final LinkedHashMap<String, Integer> slotsByKey = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextSlot = 0;
+    private long weightBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public EmbeddingCache(int dimensions, int maxEntries, long maxWeightBytes) {
+        if (dimensions <= 0 || maxEntries <= 0 || maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("dimensions, maxEntries and maxWeightBytes must be positive");
+        }
+        this.dimensions = dimensions;
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * Normalizes text so the same question with different spacing shares an entry: trims
+     * and collapses whitespace. Case is kept, because embeddings are case-sensitive ("ASA"
+     * and "asa" get different vectors).
+     */
+    public static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Returns a copy of the cached vector for the given text, or null on a miss.
+     */
+    public synchronized float[] get(String text) {
+        Integer slot = slotsByKey.get(normalize(text));
+        if (slot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        float[] vector = new float[dimensions];
+        segment(slot).get(offset(slot), vector);
+        return vector;
+    }
+
+    /**
+     * Stores a vector for the given text. Vectors with unexpected dimensions are not cached.
+     */
+    public synchronized void put(String text, float[] vector) {
+        if (vector == null || vector.length != dimensions) {
+            rejected.incrementAndGet();
+            return;
+        }
+        String key = normalize(text);
+        Integer slot = slotsByKey.get(key);
+        if (slot == null) {
+            slot = allocateSlot();
+            slotsByKey.put(key, slot);
+            weightBytes += weightOf(key);
+        }
+        segment(slot).put(offset(slot), vector);
+        evictIfNeeded();
+    }
+
+    public synchronized void clear() {
+        slotsByKey.values().forEach(freeSlots::push);
+        slotsByKey.clear();
+        weightBytes = 0;
+    }
+
+    public synchronized int size() {
+        return slotsByKey.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (this) {
+            stats.put("entries", slotsByKey.size());
+            stats.put("weightBytes", weightBytes);
+            stats.put("offHeapBytes", (long) segments.size() * SEGMENT_SLOTS * dimensions * Float.BYTES);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxWeightBytes", maxWeightBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("rejected", rejected.get());
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Integer>> eldest = slotsByKey.entrySet().iterator();
+        while ((slotsByKey.size() > maxEntries || weightBytes > maxWeightBytes) && eldest.hasNext()) {
+            Map.Entry<String, Integer> entry = eldest.next();
+            weightBytes -= weightOf(entry.getKey());
+            freeSlots.push(entry.getValue());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private long weightOf(String key) {
+        return (long) dimensions * Float.BYTES + (long) key.length() * Character.BYTES + ENTRY_OVERHEAD_BYTES;
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        int slot = nextSlot++;
+        if (slot / SEGMENT_SLOTS >= segments.size()) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_SLOTS * dimensions * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer());
+        }
+        return slot;
+    }
+
+    private FloatBuffer segment(int slot) {
+        return segments.get(slot / SEGMENT_SLOTS);
+    }
+
+    private int offset(int slot) {
+        return (slot % SEGMENT_SLOTS) * dimensions;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.springaiapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records which version of each pre-loaded document is already in the vector store.
+ *
+ * Every document is identified by its id and a SHA-256 hash of its text and metadata.
+ * A document only needs to be embedded again when its hash differs from the one in the
+ * {@code ingestion_manifest} table.
+ */
+@Component
+public class IngestionManifest {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IngestionManifest(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Hash of the document's text and metadata. Metadata keys are sorted so the hash does
+     * not depend on map iteration order.
+     */
+    public static String contentHash(Document document) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(document.getText()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(new TreeMap<>(document.getMetadata()).toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the recorded hashes of the given documents. Documents never ingested are absent.
+     */
+    public Map<String, String> hashes(Collection<String> documentIds) {
+        Map<String, String> hashes = new HashMap<>();
+        if (documentIds.isEmpty()) {
+            return hashes;
+        }
+        jdbcTemplate.query("""
+                SELECT document_id::text AS document_id, content_hash FROM ingestion_manifest
+                WHERE document_id = ANY(string_to_array(?, ',')::uuid[])
+                """,
+                rs -> {
+                    hashes.put(rs.getString("document_id"), rs.getString("content_hash"));
+                },
+                String.join(",", documentIds));
+        return hashes;
+    }
+
+    /**
+     * Records documents as ingested. Call this only after they were written to the vector store.
+     *
+     * @param hashesById Content hash per document id, computed before the documents were written
+     */
+    public void record(Map<String, String> hashesById) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ingestion_manifest (document_id, content_hash, ingested_at)
+                VALUES (?::uuid, ?, now())
+                ON CONFLICT (document_id) DO UPDATE
+                SET content_hash = EXCLUDED.content_hash, ingested_at = EXCLUDED.ingested_at
+                """,
+                hashesById.entrySet().stream().map(e -> new Object[] {e.getKey(), e.getValue()}).toList());
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.springaiapp.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind stage for storing Q&A interactions in the vector store.
+ *
+ * Storing an interaction costs an embedding call plus a Postgres insert. The answer is
+ * already computed at that point, so instead of making the user wait, interactions are
+ * put on a bounded queue and a background drainer writes them in batches. A batch of
+ * documents becomes one batched embedding request and one JDBC batch insert. The questions
+ * are added to the {@link SemanticAnswerCache} in the same pass.
+ *
+ * When the queue is full the configured {@link OverflowPolicy} decides what happens.
+ * On shutdown the writer stops after the web server, so requests that are still
+ * finishing can enqueue, and everything left in the queue is flushed before the
+ * datasource closes.
+ */
+@Component
+public class InteractionWriter implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(InteractionWriter.class);
+
+    /**
+     * What to do with a new interaction when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait up to the offer timeout for space, then drop the new interaction. */
+        BLOCK,
+        /** Drop the new interaction immediately. */
+        DROP_NEWEST,
+        /** Drop the oldest queued interaction to make room. */
+        DROP_OLDEST,
+        /** Write the interaction synchronously on the caller's thread. */
+        CALLER_RUNS
+    }
+
+    private final VectorStore vectorStore;
+    private final SemanticAnswerCache answerCache;
+    private final PipelineMetrics metrics;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final Duration shutdownTimeout;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<Document> queue;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private volatile boolean running = false;
+    private Thread drainer;
+
+    public InteractionWriter(VectorStore vectorStore, SemanticAnswerCache answerCache, PipelineMetrics metrics,
+                             @Value("${app.rag.write-behind.enabled:true}") boolean enabled,
+                             @Value("${app.rag.write-behind.capacity:1000}") int capacity,
+                             @Value("${app.rag.write-behind.batch-size:64}") int batchSize,
+                             @Value("${app.rag.write-behind.flush-interval:200ms}") Duration flushInterval,
+                             @Value("${app.rag.write-behind.offer-timeout:500ms}") Duration offerTimeout,
+                             @Value("${app.rag.write-behind.shutdown-timeout:20s}") Duration shutdownTimeout,
+                             @Value("${app.rag.write-behind.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy) {
+        this.vectorStore = vectorStore;
+        this.answerCache = answerCache;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Queues an interaction for storage. Falls back to a synchronous write when the
+     * write-behind stage is disabled or not running.
+     */
+    public void submit(Document document) {
+        submitted.incrementAndGet();
+        if (!enabled || !running) {
+            write(List.of(document));
+            return;
+        }
+        if (queue.offer(document)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(document, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                        drop(document);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(document);
+                }
+            }
+            case DROP_NEWEST -> drop(document);
+            case DROP_OLDEST -> {
+                Document oldest = queue.poll();
+                if (oldest != null) {
+                    drop(oldest);
+                }
+                if (!queue.offer(document)) {
+                    drop(document);
+                }
+            }
+            case CALLER_RUNS -> write(List.of(document));
+        }
+    }
+
+    private void drop(Document document) {
+        dropped.incrementAndGet();
+        logger.warn("Write-behind queue full ({} pending), dropping interaction {}", queue.size(), document.getId());
+    }
+
+    private void drainLoop() {
+        List<Document> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Document first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Shutdown timeout elapsed; whatever is still queued is reported by stop()
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Document> batch) {
+        try {
+            metrics.time(PipelineMetrics.Stage.VECTOR_ADD, () -> vectorStore.add(batch));
+            answerCache.store(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+            logger.debug("Stored {} interactions in one batch", batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            logger.error("Failed to store {} interactions", batch.size(), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            logger.info("Write-behind disabled, interactions are stored synchronously");
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "interaction-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+        logger.info("Write-behind started (capacity: {}, batch size: {}, overflow policy: {})",
+                queue.remainingCapacity(), batchSize, overflowPolicy);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        logger.info("Flushing {} pending interactions before shutdown", queue.size());
+        try {
+            drainer.join(shutdownTimeout.toMillis());
+            if (drainer.isAlive()) {
+                drainer.interrupt();
+                drainer.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("{} interactions were not stored before shutdown", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop after the embedded web server (which stops at {@code DEFAULT_PHASE - 2048})
+     * so in-flight requests can still enqueue their interactions.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("overflowPolicy", overflowPolicy.name());
+        stats.put("queueDepth", queue.size());
+        stats.put("submitted", submitted.get());
+        stats.put("written", written.get());
+        stats.put("batches", batches.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
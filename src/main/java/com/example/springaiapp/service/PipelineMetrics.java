@@ -0,0 +1,157 @@
+package com.example.springaiapp.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters for the stages of the RAG and blog pipelines, exported at
+ * {@code /actuator/prometheus}.
+ *
+ * Every stage is a timer named {@code app.pipeline.stage}, tagged with its
+ * {@code pipeline}, {@code stage} and {@code outcome} (success or error). The tags only
+ * take the values of {@link Stage}, so the number of series stays fixed whatever the
+ * traffic. With {@code app.metrics.histograms} the success timers publish histogram buckets,
+ * so p95 and p99 can be aggregated across replicas. Timers are created once, and a
+ * measurement costs two {@code nanoTime} calls and one timer update.
+ *
+ * Work that is not traffic, such as the startup warm-up, runs in {@link #unrecorded},
+ * so it does not show up in the stage timers and distributions.
+ *
+ * Educational Note:
+ * An end-to-end latency says that a request was slow, not why. Timing each stage shows
+ * whether the time went into the embedding call, the index, the prompt or the model,
+ * and only that tells you what to tune.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String STAGE_TIMER = "app.pipeline.stage";
+
+    public enum Stage {
+        /** Embedding calls to Azure OpenAI, for queries and documents; cache hits make none. */
+        EMBEDDING("rag", "embedding"),
+        /** Vector store search, including the query embedding. */
+        SIMILARITY_SEARCH("rag", "similarity-search"),
+        CONTEXT_BUILD("rag", "context-build"),
+        COMPLETION("rag", "completion"),
+        VECTOR_ADD("rag", "vector-add"),
+        BLOG_DRAFT("blog", "draft"),
+        BLOG_RULES("blog", "rules"),
+        BLOG_EDITOR("blog", "editor"),
+        /** One evaluate-and-refine round of the writer/editor loop. */
+        BLOG_ITERATION("blog", "iteration");
+
+        private final String pipeline;
+        private final String tag;
+
+        Stage(String pipeline, String tag) {
+            this.pipeline = pipeline;
+            this.tag = tag;
+        }
+    }
+
+    /** Set while the current thread runs in {@link #unrecorded}. */
+    private final ThreadLocal<Boolean> suppressed = ThreadLocal.withInitial(() -> false);
+
+    private final Map<Stage, Timer> successes = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> errors = new EnumMap<>(Stage.class);
+    private final DistributionSummary retrievedDocuments;
+    private final DistributionSummary approvedIterations;
+    private final DistributionSummary rejectedIterations;
+
+    public PipelineMetrics(MeterRegistry registry,
+                           @Value("${app.metrics.histograms:true}") boolean histograms) {
+        for (Stage stage : Stage.values()) {
+            successes.put(stage, timer(registry, stage, "success", histograms));
+            errors.put(stage, timer(registry, stage, "error", histograms));
+        }
+        this.retrievedDocuments = DistributionSummary.builder("app.rag.retrieved.documents")
+                .description("Documents returned by the similarity search of a query")
+                .register(registry);
+        this.approvedIterations = iterations(registry, "true");
+        this.rejectedIterations = iterations(registry, "false");
+    }
+
+    private static Timer timer(MeterRegistry registry, Stage stage, String outcome, boolean histograms) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Time spent in one stage of a pipeline")
+                .tag("pipeline", stage.pipeline)
+                .tag("stage", stage.tag)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram(histograms && "success".equals(outcome))
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(registry);
+    }
+
+    private static DistributionSummary iterations(MeterRegistry registry, String approved) {
+        return DistributionSummary.builder("app.blog.iterations")
+                .description("Writer/editor iterations of a finished blog post")
+                .tag("approved", approved)
+                .register(registry);
+    }
+
+    /**
+     * Runs an action and records its duration under the stage. An exception is recorded
+     * with {@code outcome=error} and rethrown.
+     */
+    public <T> T time(Stage stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = action.get();
+            success = true;
+            return result;
+        } finally {
+            record(stage, System.nanoTime() - start, success);
+        }
+    }
+
+    public void time(Stage stage, Runnable action) {
+        time(stage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void record(Stage stage, long nanos, boolean success) {
+        if (!suppressed.get()) {
+            (success ? successes : errors).get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void retrieved(int documents) {
+        if (!suppressed.get()) {
+            retrievedDocuments.record(documents);
+        }
+    }
+
+    public void blogFinished(int iterations, boolean approved) {
+        if (!suppressed.get()) {
+            (approved ? approvedIterations : rejectedIterations).record(iterations);
+        }
+    }
+
+    /**
+     * Runs an action without recording any measurement it makes on the current thread.
+     * Work the action hands to other threads is still recorded.
+     */
+    public <T> T unrecorded(Supplier<T> action) {
+        boolean outer = suppressed.get();
+        suppressed.set(true);
+        try {
+            return action.get();
+        } finally {
+            suppressed.set(outer);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.springaiapp.service;
 
+import com.example.springaiapp.resilience.OverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.vectorstore.SearchRequest;
@@ -12,10 +14,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.ai.document.Document;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * RAG (Retrieval Augmented Generation) Service
@@ -24,7 +29,7 @@ import jakarta.annotation.PostConstruct;
  * 1. Convert input query to embeddings
  * 2. Find similar previous Q&As using vector similarity
  * 3. Use found Q&As as context for the AI
- * 4. Generate and store new responses
+ * 4. Generate and store new responses (stored asynchronously by {@link InteractionWriter})
  * 
  * This approach helps the AI:
  * - Give more relevant answers
@@ -44,6 +49,21 @@ public class RagService {
     
     private final ChatClient chatClient;
     
+    /**
+     * The fixed instructions, sent first so every prompt starts with the same bytes and the
+     * provider can serve them from its prompt cache. The retrieved context and the question
+     * vary with each call and go last, in the user message.
+     */
+    static final String SYSTEM_PROMPT = """
+            You are a helpful AI assistant that provides clear and educational responses.
+            The user message contains previous Q&A pairs, followed by a new question.
+            Use the previous Q&A pairs as context for answering the new question.""";
+    
+    /** Name the answer calls' usage is recorded under by the {@link TokenUsageAdvisor}. */
+    private static final String PROMPT_NAME = "rag-answer";
+    
+    private static final SystemMessage SYSTEM_MESSAGE = new SystemMessage(SYSTEM_PROMPT);
+    
     @Value("${spring.ai.azure.openai.chat.options.deployment-name}")
     private String chatDeploymentName;
     
@@ -53,6 +73,21 @@ public class RagService {
     @Autowired
     VectorStore vectorStore;
     
+    @Autowired
+    SemanticAnswerCache answerCache;
+    
+    @Autowired
+    InteractionWriter interactionWriter;
+    
+    @Autowired
+    ContextAssembler contextAssembler;
+    
+    @Autowired
+    ConversationMemory conversationMemory;
+    
+    @Autowired
+    PipelineMetrics metrics;
+    
     public RagService(ChatClient.Builder chatClientBuilder) {
         this.chatClient = chatClientBuilder.build();
     }
@@ -64,64 +99,225 @@ public class RagService {
     }
     
     public String processQuery(String query) {
+        return processQuery(query, false);
+    }
+    
+    /**
+     * Answers a query using RAG.
+     * 
+     * @param query The user's question
+     * @param refresh When true the semantic answer cache is bypassed and a fresh answer is generated
+     * @return The generated (or cached) answer
+     */
+    public String processQuery(String query, boolean refresh) {
+        return processQuery(query, refresh, null);
+    }
+    
+    /**
+     * Answers a query as a turn of a conversation.
+     * 
+     * @param query The user's question
+     * @param refresh When true the semantic answer cache is bypassed and a fresh answer is generated
+     * @param sessionId Conversation session, or {@code null} for a standalone question
+     * @return The generated (or cached) answer
+     */
+    public String processQuery(String query, boolean refresh, String sessionId) {
         try {
-            logger.debug("Processing query: {}", query);
-            
-            // Step 1: Find similar previous Q&As
-            logger.debug("Finding similar contexts");
+            return complete(query, prepare(query, refresh, sessionId));
+        } catch (OverloadedException e) {
+            // Let the caller shed the request (HTTP 429/503) instead of answering with an error text
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error processing query: {}", query, e);
+            return errorMessage(e);
+        }
+    }
+    
+    /**
+     * Streaming variant of {@link #processQuery(String, boolean)}.
+     * 
+     * Retrieval and prompt construction are the same, but the answer is emitted token by
+     * token as Azure OpenAI generates it, so the caller sees the first words right away.
+     * The interaction is stored only after the stream has completed successfully.
+     * 
+     * @param query The user's question
+     * @param refresh When true the semantic answer cache is bypassed
+     * @return A stream of answer fragments
+     */
+    public Flux<String> streamQuery(String query, boolean refresh) {
+        return streamQuery(query, refresh, null);
+    }
+    
+    /**
+     * Streaming variant of {@link #processQuery(String, boolean, String)}.
+     */
+    public Flux<String> streamQuery(String query, boolean refresh, String sessionId) {
+        // Retrieval blocks on JDBC and the embedding call, so keep it off the caller's thread
+        return Mono.fromCallable(() -> prepare(query, refresh, sessionId))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(prepared -> {
+                StringBuilder answer = new StringBuilder();
+                Flux<String> fragments = prepared.cachedAnswer() != null
+                    ? Flux.just(prepared.cachedAnswer())
+                    : timed(chatClient.prompt().advisors(advisor -> advisor.param(TokenUsageAdvisor.PROMPT_NAME, PROMPT_NAME))
+                        .messages(prepared.messages()).stream().content());
+                logger.debug("Streaming answer");
+                return fragments
+                    .doOnNext(answer::append)
+                    // Remember the turn once the whole answer is known; this writes to Postgres
+                    .concatWith(Mono.<String>fromRunnable(() -> remember(query, prepared, answer.toString()))
+                        .subscribeOn(Schedulers.boundedElastic()));
+            })
+            .onErrorResume(e -> !(e instanceof OverloadedException), e -> {
+                logger.error("Error streaming query: {}", query, e);
+                return Flux.just(errorMessage(e));
+            });
+    }
+    
+    /**
+     * Times a streamed completion from subscription to its last fragment. A cancelled stream
+     * is not recorded.
+     */
+    private Flux<String> timed(Flux<String> completion) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return completion
+                .doOnComplete(() -> metrics.record(PipelineMetrics.Stage.COMPLETION, System.nanoTime() - start, true))
+                .doOnError(e -> metrics.record(PipelineMetrics.Stage.COMPLETION, System.nanoTime() - start, false));
+        });
+    }
+    
+    /**
+     * Steps 1 and 2 of the RAG flow: retrieve similar Q&As and build the prompt,
+     * or return a cached answer for a near-identical question.
+     */
+    PreparedQuery prepare(String query, boolean refresh) {
+        return prepare(query, refresh, null);
+    }
+    
+    /**
+     * Same as {@link #prepare(String, boolean)} for a turn of a conversation. The session's
+     * summary and recent turns go between the system message and the new question.
+     */
+    PreparedQuery prepare(String query, boolean refresh, String sessionId) {
+        return prepare(query, refresh, sessionId, true);
+    }
+    
+    /**
+     * Runs retrieval and prompt building for a query without recording it: the answer cache
+     * is not consulted, and neither the context statistics nor the pipeline metrics count
+     * it. Used by {@link StartupWarmup}, whose runs are not traffic.
+     */
+    void warmUp(String query) {
+        metrics.unrecorded(() -> prepare(query, true, null, false));
+    }
+    
+    private PreparedQuery prepare(String query, boolean refresh, String sessionId, boolean record) {
+        logger.debug("Processing query: {}", query);
+        
+        // A follow-up ("and in Java?") only makes sense with the conversation before it
+        ConversationMemory.Conversation conversation = sessionId == null ? null : conversationMemory.load(sessionId);
+        boolean followUp = conversation != null && !conversation.isEmpty();
+        
+        // Near-identical question answered before? Serve the stored answer without calling the model.
+        // Not for follow-ups: the stored answer did not see this conversation
+        Optional<String> cachedAnswer = record ? answerCache.lookup(query, refresh || followUp) : Optional.empty();
+        if (cachedAnswer.isPresent()) {
+            logger.debug("Returning cached answer for query");
+            return new PreparedQuery(cachedAnswer.get(), List.of(), sessionId, false);
+        }
+        
+        // Step 1: Find similar previous Q&As
+        logger.debug("Finding similar contexts");
 
-            List<Document> similarContexts = vectorStore.similaritySearch(SearchRequest.builder().query(query).similarityThreshold(0.8).topK(3).build());
-            logger.debug("Found {} similar contexts", similarContexts.size());
+        List<Document> similarContexts = metrics.time(PipelineMetrics.Stage.SIMILARITY_SEARCH, () ->
+            vectorStore.similaritySearch(SearchRequest.builder().query(query).similarityThreshold(0.8).topK(3).build()));
+        metrics.retrieved(similarContexts.size());
+        logger.debug("Found {} similar contexts", similarContexts.size());
+        
+        // Step 2: Build prompt with context from similar Q&As, within the token budget
+        ContextAssembler.AssembledContext assembled = metrics.time(PipelineMetrics.Stage.CONTEXT_BUILD,
+            () -> contextAssembler.assemble(query, similarContexts, record));
+        String context = assembled.text();
             
-            // Step 2: Build prompt with context from similar Q&As
-            String context = similarContexts.stream()
-                .map(ch -> String.format("Q: %s\nA: %s", ch.getMetadata().get("prompt"), ch.getText()))
-                .collect(Collectors.joining("\n\n"));
-                
-            logger.debug("Built context with {} characters", context.length());
+        logger.debug("Built context with {} tokens", assembled.tokens());
 
 
-            String promptText = String.format("""
-                Use these previous Q&A pairs as context for answering the new question:
-                
-                Previous interactions:
-                %s
-                
-                New question: %s
-                
-                Please provide a clear and educational response.""",
-                context,
-                query
-            );
+        String promptText = "Previous interactions:\n" + context + "\n\nNew question: " + query;
 
-            // Step 3: Generate AI response with system context
-            logger.debug("Generating response using chat deployment: {}", chatDeploymentName);
-            SystemMessage systemMessage = new SystemMessage(
-                "You are a helpful AI assistant that provides clear and educational responses."
-            );
-            UserMessage userMessage = new UserMessage(promptText);
-            
-            logger.debug("Sending prompt to Azure OpenAI");
-            ChatResponse response = chatClient.prompt().messages(List.of(systemMessage, userMessage)).call().chatResponse();
-            String answer = response.getResult().getOutput().getText();
-            logger.debug("Received response of {} characters", answer.length());
-            
-            // Step 4: Save interaction for future context
-            logger.debug("Saving interaction to repository");
-            vectorStore.add(List.of(new Document(answer, Map.of("prompt", query))));
-            logger.debug("Successfully saved interaction");
-            
-            return answer;
-            
-        } catch (Exception e) {
-            logger.error("Error processing query: {}", query, e);
-            String errorMessage = String.format(
-                "Error processing query. Deployment info - Chat: %s, Embedding: %s. Error: %s",
-                chatDeploymentName,
-                embeddingDeploymentName,
-                e.getMessage()
-            );
-            return errorMessage;
+        logger.debug("Generating response using chat deployment: {}", chatDeploymentName);
+        SystemMessage systemMessage = SYSTEM_MESSAGE;
+        UserMessage userMessage = new UserMessage(promptText);
+        if (!followUp) {
+            return new PreparedQuery(null, List.of(systemMessage, userMessage), sessionId, false);
         }
+        List<Message> messages = new ArrayList<>();
+        messages.add(systemMessage);
+        messages.addAll(conversationMemory.messages(conversation));
+        messages.add(userMessage);
+        logger.debug("Added {} earlier turns of session {}", conversation.recentTurns().size(), sessionId);
+        return new PreparedQuery(null, messages, sessionId, true);
     }
+    
+    /**
+     * Steps 3 and 4 of the RAG flow: generate the answer for a prepared query and store it.
+     * Returns the cached answer without calling the model when there is one.
+     */
+    String complete(String query, PreparedQuery prepared) {
+        if (prepared.cachedAnswer() != null) {
+            remember(query, prepared, prepared.cachedAnswer());
+            return prepared.cachedAnswer();
+        }
+
+        // Step 3: Generate AI response with system context
+        logger.debug("Sending prompt to Azure OpenAI");
+        ChatResponse response = metrics.time(PipelineMetrics.Stage.COMPLETION, () -> chatClient.prompt()
+            .advisors(advisor -> advisor.param(TokenUsageAdvisor.PROMPT_NAME, PROMPT_NAME))
+            .messages(prepared.messages()).call().chatResponse());
+        String answer = response.getResult().getOutput().getText();
+        logger.debug("Received response of {} characters", answer.length());
+
+        // Step 4: Save interaction for future context
+        remember(query, prepared, answer);
+
+        return answer;
+    }
+    
+    /**
+     * Step 4 for any answer: fresh answers to standalone questions are stored as Q&A pairs,
+     * and every answer in a session becomes a turn of its conversation. Answers to
+     * follow-ups are not stored as Q&A pairs, because they only make sense in their conversation.
+     */
+    private void remember(String query, PreparedQuery prepared, String answer) {
+        if (prepared.cachedAnswer() == null && !prepared.followUp()) {
+            store(query, answer);
+        }
+        if (prepared.sessionId() != null) {
+            conversationMemory.append(prepared.sessionId(), query, answer);
+        }
+    }
+    
+    /**
+     * Step 4: Save the interaction for future context.
+     * The write happens in the background so the user gets the answer right away.
+     */
+    private void store(String query, String answer) {
+        logger.debug("Queueing interaction for storage");
+        interactionWriter.submit(new Document(answer, answerCache.metadataFor(query)));
+    }
+    
+    String errorMessage(Throwable e) {
+        return String.format(
+            "Error processing query. Deployment info - Chat: %s, Embedding: %s. Error: %s",
+            chatDeploymentName,
+            embeddingDeploymentName,
+            e.getMessage()
+        );
+    }
+    
+    /**
+     * Result of the retrieval phase: either a cached answer or the messages to send to the model.
+     * {@code followUp} is set when the messages include earlier turns of the session.
+     */
+    record PreparedQuery(String cachedAnswer, List<Message> messages, String sessionId, boolean followUp) {}
 }
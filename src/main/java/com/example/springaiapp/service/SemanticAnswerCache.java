@@ -0,0 +1,168 @@
+package com.example.springaiapp.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pgvector.PGvector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Semantic answer cache that sits in front of the chat completion in {@link RagService}.
+ *
+ * Every fresh answer is also written to the {@code answer_cache} table together with the
+ * embedding of its question. A new question is compared with those stored questions;
+ * when one is almost identical (similarity at or above a high cutoff, well above the 0.8
+ * context threshold), its answer is returned as-is and the chat model is never called.
+ *
+ * Educational Note:
+ * The vector store embeds the stored answers, which is what the context search needs but
+ * not what a cache key is: a question is rarely 0.97 similar to its own answer. Keying
+ * the cache on the question embedding makes a repeated or reworded question a hit. The
+ * question's embedding is the one the similarity search uses anyway, so with the
+ * embedding cache the lookup costs one indexed query.
+ */
+@Component
+public class SemanticAnswerCache {
+    private static final Logger logger = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    /** Metadata key holding the epoch millis at which an interaction was stored. */
+    public static final String CREATED_AT_KEY = "createdAt";
+
+    private static final String LOOKUP_SQL = """
+            SELECT answer, 1 - (embedding <=> ?) AS similarity
+            FROM answer_cache
+            WHERE created_at > now() - make_interval(secs => ?)
+            ORDER BY embedding <=> ?, created_at DESC
+            LIMIT 1
+            """;
+
+    private static final String STORE_SQL = """
+            INSERT INTO answer_cache (question, embedding, answer, created_at) VALUES (?, ?, ?, ?)
+            """;
+
+    private record Hit(String answer, double similarity) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+
+    @Value("${app.rag.answer-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rag.answer-cache.similarity-threshold:0.97}")
+    private double similarityThreshold;
+
+    @Value("${app.rag.answer-cache.ttl:24h}")
+    private Duration ttl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public SemanticAnswerCache(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingModel = embeddingModel;
+    }
+
+    /**
+     * Looks for the answer to a fresh, near-identical question asked before.
+     *
+     * @param question  The new question
+     * @param forceMiss When true the cache is bypassed and the chat model is always called
+     * @return The stored answer when a stored question is similar enough
+     */
+    public Optional<String> lookup(String question, boolean forceMiss) {
+        if (!enabled || forceMiss) {
+            bypasses.incrementAndGet();
+            return Optional.empty();
+        }
+        try {
+            PGvector embedding = new PGvector(embeddingModel.embed(question));
+            List<Hit> rows = jdbcTemplate.query(LOOKUP_SQL,
+                    (rs, rowNum) -> new Hit(rs.getString("answer"), rs.getDouble("similarity")),
+                    embedding, ttl.toSeconds(), embedding);
+            if (rows.isEmpty() || rows.get(0).similarity() < similarityThreshold) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            logger.debug("Answer cache hit with similarity {}", rows.get(0).similarity());
+            return Optional.of(rows.get(0).answer());
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            misses.incrementAndGet();
+            logger.warn("Answer cache lookup failed, calling the model: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores answered questions, built with {@link #metadataFor(String)}, and removes
+     * expired ones. The questions are embedded in one call. A failure is logged; the
+     * interactions themselves are stored by the caller.
+     */
+    public void store(List<Document> interactions) {
+        if (!enabled || interactions.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> questions = interactions.stream()
+                    .map(document -> String.valueOf(document.getMetadata().get("prompt")))
+                    .toList();
+            List<float[]> embeddings = embeddingModel.embed(questions);
+            List<Object[]> rows = new ArrayList<>(interactions.size());
+            for (int i = 0; i < interactions.size(); i++) {
+                Object createdAt = interactions.get(i).getMetadata().get(CREATED_AT_KEY);
+                Instant storedAt = createdAt instanceof Number millis ? Instant.ofEpochMilli(millis.longValue())
+                        : Instant.now();
+                rows.add(new Object[] {questions.get(i), new PGvector(embeddings.get(i)),
+                        interactions.get(i).getText(), Timestamp.from(storedAt)});
+            }
+            jdbcTemplate.batchUpdate(STORE_SQL, rows);
+            jdbcTemplate.update("DELETE FROM answer_cache WHERE created_at < now() - make_interval(secs => ?)",
+                    ttl.toSeconds());
+            stores.addAndGet(rows.size());
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("Could not add {} answers to the answer cache: {}", interactions.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the metadata for a newly stored interaction, including its creation time.
+     */
+    public Map<String, Object> metadataFor(String prompt) {
+        return Map.of("prompt", prompt, CREATED_AT_KEY, System.currentTimeMillis());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        stats.put("enabled", enabled);
+        stats.put("similarityThreshold", similarityThreshold);
+        stats.put("ttlSeconds", ttl.toSeconds());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("bypasses", bypasses.get());
+        stats.put("stores", stores.get());
+        stats.put("failures", failures.get());
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+}
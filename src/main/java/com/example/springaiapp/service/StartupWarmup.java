@@ -0,0 +1,169 @@
+package com.example.springaiapp.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Warms the application up before it reports ready (app.warmup.enabled=true).
+ *
+ * Spring Boot switches the readiness state to "accepting traffic" only after all
+ * {@link ApplicationRunner}s have finished, so a container platform does not route the
+ * first request here until this runner is done. The warm-up:
+ * 1. Opens the Hikari pool's minimum idle connections
+ * 2. Loads the HNSW indexes of {@code vector_store} into Postgres shared buffers with
+ *    {@code pg_prewarm}, when the extension is available
+ * 3. Runs the retrieval and prompt-building path of {@link RagService} a number of times,
+ *    so the JIT compiles it. The first run embeds the query, which also opens the TLS
+ *    connection to Azure OpenAI; the chat model is never called
+ * 4. Sends one request to {@code /api/rag/stats} to initialize the web and JSON stack
+ *
+ * A failing step is logged and skipped; it never keeps the application from starting.
+ * The warm-up runs are not counted in the answer cache and context statistics or in the
+ * pipeline metrics, so dashboards only show real traffic.
+ *
+ * Educational Note:
+ * After a scale-from-zero the JVM interprets bytecode, the pool is empty and the index is
+ * on disk. Each of these makes the first user request several times slower than the
+ * next ones. Paying for them before readiness keeps that cost away from users.
+ */
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupWarmup implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private static final String PREWARM_SQL = """
+            SELECT c.relname AS index_name, pg_prewarm(c.oid::regclass) AS blocks
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            JOIN pg_am am ON am.oid = c.relam
+            WHERE i.indrelid = 'vector_store'::regclass AND am.amname = 'hnsw' AND i.indisvalid
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final RagService ragService;
+    private final Environment environment;
+
+    @Value("${app.warmup.query:What is Spring AI?}")
+    private String query;
+
+    @Value("${app.warmup.iterations:50}")
+    private int iterations;
+
+    @Value("${app.warmup.prewarm-index:true}")
+    private boolean prewarmIndex;
+
+    private final Map<String, Long> stepMillis = new LinkedHashMap<>();
+
+    public StartupWarmup(DataSource dataSource, JdbcTemplate jdbcTemplate, RagService ragService,
+                         Environment environment) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ragService = ragService;
+        this.environment = environment;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        step("connectionPool", this::openConnections);
+        if (prewarmIndex) {
+            step("vectorIndex", this::prewarmVectorIndex);
+        }
+        step("ragPath", this::warmRagPath);
+        step("web", this::warmWeb);
+        logger.info("Warm-up finished in {} ms: {}", elapsedMillis(start), stepMillis);
+    }
+
+    private void step(String name, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (Exception e) {
+            logger.warn("Warm-up step {} failed, continuing: {}", name, e.getMessage());
+        }
+        stepMillis.put(name, elapsedMillis(start));
+    }
+
+    private void openConnections() {
+        int minimumIdle = 1;
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                minimumIdle = Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize());
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not inspect the connection pool", e);
+        }
+
+        // Hold them all at once, otherwise the pool would hand out the same connection every time
+        List<Connection> connections = new ArrayList<>(minimumIdle);
+        try {
+            for (int i = 0; i < minimumIdle; i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not open connection " + (connections.size() + 1), e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.debug("Could not return warm-up connection", e);
+                }
+            }
+        }
+        logger.debug("Opened {} pooled connections", connections.size());
+    }
+
+    private void prewarmVectorIndex() {
+        Boolean available = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_prewarm')", Boolean.class);
+        if (!Boolean.TRUE.equals(available)) {
+            logger.info("pg_prewarm is not installed; the vector index is warmed by the searches instead");
+            return;
+        }
+        jdbcTemplate.query(PREWARM_SQL, rs -> {
+            logger.info("Prewarmed index {} ({} blocks)", rs.getString("index_name"), rs.getLong("blocks"));
+        });
+    }
+
+    private void warmRagPath() {
+        for (int i = 0; i < iterations; i++) {
+            ragService.warmUp(query);
+        }
+    }
+
+    private void warmWeb() {
+        String port = environment.getProperty("local.server.port");
+        if (port == null) {
+            return;
+        }
+        RestClient.create("http://localhost:" + port).get().uri("/api/rag/stats").retrieve().toBodilessEntity();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.springaiapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts tokens locally with the same BPE encoding the Azure OpenAI models use.
+ *
+ * The encoding's merge table is loaded once when the bean is created and shared by all
+ * callers; {@link Encoding} is thread-safe. With {@code app.tokenizer.encoding=auto} the
+ * encoding follows the chat model: {@code o200k_base} for the GPT-4o, GPT-4.1 and o-series
+ * families, {@code cl100k_base} otherwise. The model is taken from
+ * {@code app.tokenizer.model}, which defaults to the chat deployment name.
+ */
+@Component
+public class TokenCounter {
+    private static final Logger logger = LoggerFactory.getLogger(TokenCounter.class);
+
+    private static final Pattern O200K_MODELS = Pattern.compile("gpt-?4o|gpt-?4\\.1|gpt-?5|(^|[^a-z0-9])o[134]([^a-z0-9]|$)");
+
+    /** Tokens the chat format adds around each message, and to prime the reply. */
+    private static final int TOKENS_PER_MESSAGE = 3;
+    private static final int TOKENS_PER_REPLY = 3;
+
+    private final Encoding encoding;
+
+    public TokenCounter(@Value("${app.tokenizer.encoding:auto}") String encodingName,
+                        @Value("${app.tokenizer.model:${spring.ai.azure.openai.chat.options.deployment-name:}}") String model) {
+        String resolved = "auto".equalsIgnoreCase(encodingName) ? encodingFor(model) : encodingName;
+        EncodingType type = EncodingType.fromName(resolved)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown tokenizer encoding: " + resolved));
+        this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(type);
+        logger.info("TokenCounter initialized with encoding: {} (model: {})", encoding.getName(), model);
+    }
+
+    static String encodingFor(String model) {
+        return model != null && O200K_MODELS.matcher(model.toLowerCase(Locale.ROOT)).find()
+                ? "o200k_base" : "cl100k_base";
+    }
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokensOrdinary(text);
+    }
+
+    /**
+     * Counts the prompt tokens of a chat request: the text of every message plus the
+     * tokens the chat format adds per message and for the reply.
+     */
+    public int countMessages(List<Message> messages) {
+        int tokens = TOKENS_PER_REPLY;
+        for (Message message : messages) {
+            tokens += TOKENS_PER_MESSAGE + count(message.getText());
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the longest prefix of the text that fits in the given number of tokens.
+     */
+    public String truncate(String text, int maxTokens) {
+        if (maxTokens <= 0) {
+            return "";
+        }
+        var result = encoding.encodeOrdinary(text, maxTokens);
+        return result.isTruncated() ? encoding.decode(result.getTokens()) : text;
+    }
+
+    /**
+     * Splits the text into windows of at most {@code maxTokens} tokens. Consecutive windows
+     * share {@code overlapTokens} tokens, so a sentence cut at a boundary appears whole in
+     * at least one of them.
+     */
+    public List<String> split(String text, int maxTokens, int overlapTokens) {
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        if (tokens.size() <= maxTokens) {
+            return List.of(text);
+        }
+        int step = Math.max(1, maxTokens - overlapTokens);
+        List<String> windows = new ArrayList<>();
+        for (int start = 0; ; start += step) {
+            int end = Math.min(start + maxTokens, tokens.size());
+            IntArrayList window = new IntArrayList(end - start);
+            for (int i = start; i < end; i++) {
+                window.add(tokens.get(i));
+            }
+            windows.add(encoding.decode(window));
+            if (end == tokens.size()) {
+                return windows;
+            }
+        }
+    }
+
+    public String getEncodingName() {
+        return encoding.getName();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.springaiapp.service;
+
+import com.azure.ai.openai.models.CompletionsUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+
+/**
+ * Token usage of one or more chat calls.
+ *
+ * Usage reported by Azure OpenAI is exact, including the prompt tokens served from the
+ * prompt cache. When a response carries no usage (a stream without
+ * {@code stream-options.include-usage}, for example) the counts come from the local
+ * {@link TokenCounter} and {@code estimated} is set.
+ */
+public record TokenUsage(long promptTokens, long completionTokens, long cachedPromptTokens, boolean estimated) {
+
+    public static final TokenUsage NONE = new TokenUsage(0, 0, 0, false);
+
+    /**
+     * The usage reported in a response, or null when it has none.
+     */
+    public static TokenUsage of(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return null;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() == 0) {
+            return null;
+        }
+        long cached = 0;
+        if (usage.getNativeUsage() instanceof CompletionsUsage azure && azure.getPromptTokensDetails() != null
+                && azure.getPromptTokensDetails().getCachedTokens() != null) {
+            cached = azure.getPromptTokensDetails().getCachedTokens();
+        }
+        return new TokenUsage(valueOf(usage.getPromptTokens()), valueOf(usage.getCompletionTokens()), cached, false);
+    }
+
+    /**
+     * Usage counted locally, for a call whose response reported none.
+     */
+    public static TokenUsage estimated(long promptTokens, long completionTokens) {
+        return new TokenUsage(promptTokens, completionTokens, 0, true);
+    }
+
+    public long totalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    public TokenUsage plus(TokenUsage other) {
+        return new TokenUsage(promptTokens + other.promptTokens, completionTokens + other.completionTokens,
+                cachedPromptTokens + other.cachedPromptTokens, estimated || other.estimated);
+    }
+
+    private static long valueOf(Integer tokens) {
+        return tokens == null ? 0 : tokens;
+    }
+}
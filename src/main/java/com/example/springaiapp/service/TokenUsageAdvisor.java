@@ -0,0 +1,155 @@
+package com.example.springaiapp.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.azure.ai.openai.models.ChatCompletionStreamOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.azure.openai.AzureOpenAiChatOptions;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Chat client advisor that records the token usage of every call in the
+ * {@link TokenUsageTracker}.
+ *
+ * The usage comes from the response metadata. Azure OpenAI reports usage for a stream only
+ * when the request asks for it, so with {@code streamUsage} the advisor sets
+ * {@code stream_options.include_usage} on streamed requests (and only on those: the API
+ * rejects the option on a blocking call). For a stream without usage, or a cancelled one,
+ * the prompt and the streamed text are counted locally.
+ *
+ * A call made with the advisor parameter {@link #PROMPT_NAME} is also recorded under that
+ * name, together with a hash of its leading system message. A prompt whose system message
+ * is a stable prefix reports one prefix variant; more variants mean something variable
+ * has leaked into the prefix and the provider's prompt cache cannot reuse it.
+ */
+public class TokenUsageAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+    private static final Logger logger = LoggerFactory.getLogger(TokenUsageAdvisor.class);
+
+    /** Advisor parameter naming the prompt, e.g. {@code blog-editor}. */
+    public static final String PROMPT_NAME = "token-usage.prompt-name";
+
+    private final TokenUsageTracker tracker;
+    private final TokenCounter tokenCounter;
+    private final String deploymentName;
+    private final boolean streamUsage;
+
+    public TokenUsageAdvisor(TokenUsageTracker tracker, TokenCounter tokenCounter, String deploymentName,
+                             boolean streamUsage) {
+        this.tracker = tracker;
+        this.tokenCounter = tokenCounter;
+        this.deploymentName = deploymentName;
+        this.streamUsage = streamUsage;
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        List<Message> messages = advisedRequest.toPrompt().getInstructions();
+        int localPromptTokens = tokenCounter.countMessages(messages);
+        AdvisedResponse advisedResponse = chain.nextAroundCall(advisedRequest);
+        ChatResponse response = advisedResponse.response();
+        TokenUsage usage = TokenUsage.of(response);
+        if (usage == null) {
+            usage = TokenUsage.estimated(localPromptTokens, tokenCounter.count(textOf(response)));
+        }
+        record(advisedRequest, messages, response, usage, localPromptTokens);
+        return advisedResponse;
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> {
+            List<Message> messages = advisedRequest.toPrompt().getInstructions();
+            int localPromptTokens = tokenCounter.countMessages(messages);
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+            AtomicReference<TokenUsage> reported = new AtomicReference<>();
+            StringBuilder text = new StringBuilder();
+            return chain.nextAroundStream(streamUsage ? withStreamUsage(advisedRequest) : advisedRequest)
+                    .doOnNext(advisedResponse -> {
+                        ChatResponse response = advisedResponse.response();
+                        if (response == null) {
+                            return;
+                        }
+                        last.set(response);
+                        // Usage is cumulative, the last chunk that has it holds the total
+                        TokenUsage usage = TokenUsage.of(response);
+                        if (usage != null) {
+                            reported.set(usage);
+                        }
+                        text.append(textOf(response));
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_ERROR) {
+                            return;
+                        }
+                        TokenUsage usage = reported.get();
+                        record(advisedRequest, messages, last.get(), usage != null ? usage
+                                : TokenUsage.estimated(localPromptTokens, tokenCounter.count(text.toString())),
+                                localPromptTokens);
+                    });
+        });
+    }
+
+    /**
+     * Asks for the usage chunk at the end of the stream, unless the caller set stream options itself.
+     */
+    private static AdvisedRequest withStreamUsage(AdvisedRequest advisedRequest) {
+        ChatOptions options = advisedRequest.chatOptions();
+        AzureOpenAiChatOptions azureOptions;
+        if (options == null) {
+            azureOptions = AzureOpenAiChatOptions.builder().build();
+        } else if (options instanceof AzureOpenAiChatOptions existing && existing.getStreamOptions() == null) {
+            azureOptions = existing.copy();
+        } else {
+            return advisedRequest;
+        }
+        azureOptions.setStreamOptions(new ChatCompletionStreamOptions().setIncludeUsage(true));
+        return AdvisedRequest.from(advisedRequest).chatOptions(azureOptions).build();
+    }
+
+    private void record(AdvisedRequest advisedRequest, List<Message> messages, ChatResponse response, TokenUsage usage,
+                        int localPromptTokens) {
+        String model = response != null && response.getMetadata() != null && response.getMetadata().getModel() != null
+                && !response.getMetadata().getModel().isEmpty() ? response.getMetadata().getModel() : deploymentName;
+        tracker.record(model, usage, localPromptTokens);
+        if (advisedRequest.adviseContext().get(PROMPT_NAME) instanceof String name) {
+            String prefix = !messages.isEmpty() && messages.get(0) instanceof SystemMessage system ? system.getText() : "";
+            tracker.recordPrompt(name, usage, prefix.hashCode());
+        }
+        logger.debug("Chat call on {} used {} prompt ({} cached) and {} completion tokens{}", model,
+                usage.promptTokens(), usage.cachedPromptTokens(), usage.completionTokens(),
+                usage.estimated() ? " (estimated)" : "");
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return "";
+        }
+        String text = response.getResult().getOutput().getText();
+        return text == null ? "" : text;
+    }
+
+    @Override
+    public String getName() {
+        return "TokenUsageAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // Outside the deployment guard, so a retried call is recorded once
+        return Ordered.LOWEST_PRECEDENCE - 2000;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.springaiapp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Totals of the tokens used by every chat call, per model.
+ *
+ * Fed by {@link TokenUsageAdvisor}. Besides the totals it keeps the ratio of the local
+ * prompt count to the reported one. A ratio far from 1 means {@code app.tokenizer.encoding}
+ * does not match the model, so prompt budgets and quota estimates are off.
+ *
+ * Named prompts are also counted on their own, with the share of their prompt tokens the
+ * provider served from its prompt cache and the number of different system-message
+ * prefixes seen. A stable prompt has exactly one.
+ *
+ * The token totals are also counted in Micrometer as {@code app.llm.tokens}, tagged with the
+ * model and the type ({@code prompt}, {@code completion} or {@code cached-prompt}).
+ */
+@Component
+public class TokenUsageTracker {
+
+    private static final class ModelStats {
+        final Counter promptCounter;
+        final Counter completionCounter;
+        final Counter cachedPromptCounter;
+        final LongAdder calls = new LongAdder();
+        final LongAdder estimatedCalls = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder cachedPromptTokens = new LongAdder();
+        final LongAdder localPromptTokens = new LongAdder();
+        final LongAdder reportedPromptTokens = new LongAdder();
+
+        ModelStats(MeterRegistry registry, String model) {
+            promptCounter = tokens(registry, model, "prompt");
+            completionCounter = tokens(registry, model, "completion");
+            cachedPromptCounter = tokens(registry, model, "cached-prompt");
+        }
+
+        private static Counter tokens(MeterRegistry registry, String model, String type) {
+            return Counter.builder("app.llm.tokens")
+                    .description("Tokens used by chat calls")
+                    .tag("model", model)
+                    .tag("type", type)
+                    .register(registry);
+        }
+    }
+
+    private static final class PromptStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder cachedPromptTokens = new LongAdder();
+        final Set<Integer> prefixes = ConcurrentHashMap.newKeySet();
+    }
+
+    /** Prefix hashes kept per prompt; enough to tell a stable prefix from a leaking one. */
+    private static final int MAX_PREFIXES = 32;
+
+    private final Map<String, ModelStats> models = new ConcurrentHashMap<>();
+    private final Map<String, PromptStats> prompts = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public TokenUsageTracker(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records one call.
+     *
+     * @param model Model or deployment that served the call
+     * @param usage Its usage
+     * @param localPromptTokens The prompt tokens counted locally before the call
+     */
+    public void record(String model, TokenUsage usage, int localPromptTokens) {
+        ModelStats stats = models.computeIfAbsent(model == null ? "unknown" : model,
+                name -> new ModelStats(registry, name));
+        stats.calls.increment();
+        stats.promptCounter.increment(usage.promptTokens());
+        stats.completionCounter.increment(usage.completionTokens());
+        stats.cachedPromptCounter.increment(usage.cachedPromptTokens());
+        stats.promptTokens.add(usage.promptTokens());
+        stats.completionTokens.add(usage.completionTokens());
+        stats.cachedPromptTokens.add(usage.cachedPromptTokens());
+        if (usage.estimated()) {
+            stats.estimatedCalls.increment();
+        } else {
+            stats.localPromptTokens.add(localPromptTokens);
+            stats.reportedPromptTokens.add(usage.promptTokens());
+        }
+    }
+
+    /**
+     * Records one call of a named prompt.
+     *
+     * @param prefixHash Hash of the prompt's system message
+     */
+    public void recordPrompt(String name, TokenUsage usage, int prefixHash) {
+        PromptStats stats = prompts.computeIfAbsent(name, key -> new PromptStats());
+        stats.calls.increment();
+        if (!usage.estimated()) {
+            stats.promptTokens.add(usage.promptTokens());
+            stats.cachedPromptTokens.add(usage.cachedPromptTokens());
+        }
+        if (stats.prefixes.size() < MAX_PREFIXES) {
+            stats.prefixes.add(prefixHash);
+        }
+    }
+
+    public Map<String, Object> getPromptStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        prompts.forEach((name, stats) -> {
+            long prompt = stats.promptTokens.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", stats.calls.sum());
+            entry.put("promptTokens", prompt);
+            entry.put("cachedPromptTokens", stats.cachedPromptTokens.sum());
+            entry.put("cachedPromptShare", prompt == 0 ? 0.0 : (double) stats.cachedPromptTokens.sum() / prompt);
+            entry.put("prefixVariants", stats.prefixes.size());
+            result.put(name, entry);
+        });
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        models.forEach((model, stats) -> {
+            long prompt = stats.promptTokens.sum();
+            long reportedPrompt = stats.reportedPromptTokens.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", stats.calls.sum());
+            entry.put("estimatedCalls", stats.estimatedCalls.sum());
+            entry.put("promptTokens", prompt);
+            entry.put("completionTokens", stats.completionTokens.sum());
+            entry.put("cachedPromptTokens", stats.cachedPromptTokens.sum());
+            entry.put("cachedPromptShare", prompt == 0 ? 0.0 : (double) stats.cachedPromptTokens.sum() / prompt);
+            entry.put("localCountRatio", reportedPrompt == 0 ? null : (double) stats.localPromptTokens.sum() / reportedPrompt);
+            result.put(model, entry);
+        });
+        return result;
+    }
+}
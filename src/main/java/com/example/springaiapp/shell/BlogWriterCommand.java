@@ -1,6 +1,10 @@
 package com.example.springaiapp.shell;
 
+import java.util.Map;
+
+import com.example.springaiapp.service.BlogResultCache;
 import com.example.springaiapp.service.BlogWriterService;
+import org.jline.terminal.Terminal;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
@@ -8,9 +12,13 @@ import org.springframework.shell.standard.ShellOption;
 @ShellComponent
 public class BlogWriterCommand {
     private final BlogWriterService blogWriterService;
+    private final BlogResultCache blogResultCache;
+    private final Terminal terminal;
 
-    public BlogWriterCommand(BlogWriterService blogWriterService) {
+    public BlogWriterCommand(BlogWriterService blogWriterService, BlogResultCache blogResultCache, Terminal terminal) {
         this.blogWriterService = blogWriterService;
+        this.blogResultCache = blogResultCache;
+        this.terminal = terminal;
     }
 
     @ShellMethod(
@@ -23,6 +31,9 @@ public class BlogWriterCommand {
             
             The process continues for up to 3 iterations or until the editor approves.
             Progress and feedback are logged to the console.
+            Use --stream to watch the drafts, verdicts and feedback as they happen.
+            Use --candidates N to write N drafts in parallel and refine the best one.
+            Approved posts are cached by topic; use --refresh to write a new one.
             
             Example: write-blog "Spring AI Integration with Azure OpenAI"
             """
@@ -33,8 +44,51 @@ public class BlogWriterCommand {
                     The topic for your blog post. Use quotes for topics with spaces.
                     Example: "Spring AI and Azure OpenAI Integration in 3 sentences"
                     """
-            ) String topic
+            ) String topic,
+            @ShellOption(help = "Print each draft, verdict and feedback as it happens", defaultValue = "false") boolean stream,
+            @ShellOption(help = "Number of drafts written in parallel (best-of-N)", defaultValue = ShellOption.NULL) Integer candidates,
+            @ShellOption(help = "Write a new post even if one is cached for this topic", defaultValue = "false") boolean refresh
     ) {
-        return blogWriterService.generateBlogPost(topic);
+        if (candidates != null) {
+            if (stream) {
+                return "--stream follows the sequential loop and cannot be combined with --candidates";
+            }
+            var response = blogResultCache.getOrGenerate(topic, refresh,
+                () -> blogWriterService.generateBlogPostWithMetadata(topic, candidates));
+            var metadata = (Map<?, ?>) response.get("metadata");
+            if (Boolean.TRUE.equals(metadata.get("cached"))) {
+                return String.format("%s%n%n(cached %s, similarity %s; use --refresh to write a new post)",
+                    response.get("content"), metadata.get("cachedAt"), metadata.get("cacheSimilarity"));
+            }
+            return String.format("%s%n%n(%s candidates, scores %s, %s ms, %s sequential calls, ~%s tokens)",
+                response.get("content"), candidates,
+                metadata.containsKey("candidateScores") ? metadata.get("candidateScores") : "[]",
+                metadata.get("wallClockMillis"), metadata.get("sequentialCalls"), metadata.get("totalTokensUsed"));
+        }
+        if (!stream) {
+            return (String) blogResultCache.getOrGenerate(topic, refresh,
+                () -> blogWriterService.generateBlogPostWithMetadata(topic)).get("content");
+        }
+        var writer = terminal.writer();
+        var last = blogWriterService.streamBlogPost(topic)
+            .doOnNext(event -> {
+                switch (event.type()) {
+                    case "iteration" -> writer.printf(event.iteration() == 0
+                        ? "%n=== Initial draft ===%n" : "%n=== Iteration %d ===%n", event.iteration());
+                    case "draft" -> writer.print(event.text());
+                    case "verdict" -> writer.printf("%n[Editor] %s%n",
+                        Boolean.TRUE.equals(event.approved()) ? "PASS" : "NEEDS_IMPROVEMENT");
+                    case "feedback" -> writer.printf("[Feedback] %s%n%n[Writer] Revising...%n", event.text());
+                    default -> { }
+                }
+                writer.flush();
+            })
+            .blockLast();
+        if (last == null || last.content() == null) {
+            return "No blog post was generated";
+        }
+        return String.format("%n=== Final post (%s after %s iterations) ===%n%s",
+            Boolean.TRUE.equals(last.approved()) ? "approved" : "not approved",
+            last.metadata().get("iterations"), last.content());
     }
-} 
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package com.example.springaiapp.shell;
 
+import com.example.springaiapp.ingestion.CorpusIngestionService;
+import com.example.springaiapp.service.ConversationMemory;
 import com.example.springaiapp.service.RagService;
+import org.jline.terminal.Terminal;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
@@ -15,9 +18,13 @@ import org.springframework.shell.standard.ShellOption;
 @ShellComponent
 public class RagDemoCommands {
     private final RagService ragService;
+    private final CorpusIngestionService ingestionService;
+    private final Terminal terminal;
     
-    public RagDemoCommands(RagService ragService) {
+    public RagDemoCommands(RagService ragService, CorpusIngestionService ingestionService, Terminal terminal) {
         this.ragService = ragService;
+        this.ingestionService = ingestionService;
+        this.terminal = terminal;
     }
     
     /**
@@ -29,10 +36,58 @@ public class RagDemoCommands {
      * 2. Find similar previous Q&As
      * 3. Use them as context for generating an answer
      * 4. Store the new Q&A pair for future reference
+     * 
+     * Near-identical questions are answered from the semantic answer cache.
+     * Use --refresh to force a fresh answer from the model.
+     * Use --stream to print the answer as it is generated.
+     * Use --session to continue a conversation: earlier questions and answers of the
+     * same session are remembered, so follow-up questions work.
      */
     @ShellMethod(key = "ask", value = "Ask a question using RAG")
-    public String ask(@ShellOption(help = "Your question") String question) {
-        return ragService.processQuery(question);
+    public String ask(@ShellOption(help = "Your question") String question,
+                      @ShellOption(help = "Bypass the semantic answer cache", defaultValue = "false") boolean refresh,
+                      @ShellOption(help = "Print the answer token by token", defaultValue = "false") boolean stream,
+                      @ShellOption(help = "Conversation session id", defaultValue = ShellOption.NULL) String session) {
+        if (session != null && !ConversationMemory.isValidSessionId(session)) {
+            return "Session ids are 1-128 letters, digits, '.', '_', ':' or '-'";
+        }
+        if (!stream) {
+            return ragService.processQuery(question, refresh, session);
+        }
+        var writer = terminal.writer();
+        ragService.streamQuery(question, refresh, session)
+            .doOnNext(token -> {
+                writer.print(token);
+                writer.flush();
+            })
+            .blockLast();
+        writer.println();
+        writer.flush();
+        return null;
+    }
+    
+    /**
+     * Loads a corpus of markdown, text and JSONL files into the vector store.
+     * Example: ingest docs
+     * 
+     * The path is relative to the corpus root (app.ingestion.corpus.root).
+     * An interrupted run continues from its checkpoint unless --resume false is given.
+     */
+    @ShellMethod(key = "ingest", value = "Load a corpus of documents into the vector store")
+    public String ingest(@ShellOption(help = "File or directory below the corpus root") String path,
+                         @ShellOption(help = "Continue from the last checkpoint", defaultValue = "true") boolean resume) {
+        var writer = terminal.writer();
+        var last = ingestionService.ingest(path, resume)
+            .doOnNext(progress -> {
+                if (!progress.done()) {
+                    writer.printf("%s: %d chunks, %d tokens, %d ms%n",
+                        progress.file(), progress.chunks(), progress.tokens(), progress.millis());
+                    writer.flush();
+                }
+            })
+            .blockLast();
+        return last == null ? "Nothing to ingest"
+            : String.format("Ingested %d chunks (%d tokens) in %d ms", last.chunks(), last.tokens(), last.millis());
     }
     
     /**
@@ -50,11 +105,18 @@ public class RagDemoCommands {
             
             Available commands:
             - ask 'your question'    Ask a question using RAG
+              --refresh              Bypass the answer cache and ask the model again
+              --stream               Print the answer as it is generated
+              --session 'id'         Continue the conversation with this id
+            - ingest 'path'          Load markdown, text and JSONL files into the vector store
+              --resume false         Start over instead of continuing from the last checkpoint
             - help                   Show this help message
             - exit                   Exit the application
             
             Example:
             ask What is Spring AI?
+            ask --session demo 'What is pgvector?'
+            ask --session demo 'How do I index it?'
             
             How it works:
             1. Your question is converted to a vector using Azure OpenAI
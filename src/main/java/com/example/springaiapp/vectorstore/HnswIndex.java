@@ -0,0 +1,533 @@
+package com.example.springaiapp.vectorstore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW (Hierarchical Navigable Small World) index over cosine similarity.
+ *
+ * Vectors are normalized on insert and packed back to back into one {@code float[]}
+ * arena, so similarity is a plain dot product over a contiguous slice. Each node keeps
+ * one neighbour list per level. Updated or removed documents are tombstoned and skipped
+ * in results; {@link #compact()} rebuilds the graph without them.
+ *
+ * The index can be written to a snapshot file and loaded back through a memory-mapped
+ * read, so a new replica starts with a warm index instead of rebuilding it from Postgres.
+ *
+ * Educational Note:
+ * HNSW builds a layered proximity graph. Searches start at the sparse top layer, greedily
+ * walk towards the query, and refine the candidate list on the dense bottom layer. This
+ * is the same algorithm pgvector uses for its HNSW index.
+ */
+public class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+
+    private final int dimensions;
+    private final int m;
+    private final int maxConnectionsLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors;
+    private int[][][] links;
+    private String[] ids;
+    private String[] contents;
+    private String[] metadata;
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private int size = 0;
+    private int deletedCount = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * A search result: the stored document and its cosine similarity to the query.
+     */
+    public record Hit(String id, String content, String metadataJson, float similarity) {}
+
+    /**
+     * An index loaded from a snapshot, together with the sync watermark it was taken at.
+     */
+    public record Snapshot(HnswIndex index, long watermarkMicros) {}
+
+    private record Candidate(int node, float distance) {}
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this(dimensions, m, efConstruction, 1024);
+    }
+
+    private HnswIndex(int dimensions, int m, int efConstruction, int initialCapacity) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxConnectionsLevel0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.vectors = new float[initialCapacity * dimensions];
+        this.links = new int[initialCapacity][][];
+        this.ids = new String[initialCapacity];
+        this.contents = new String[initialCapacity];
+        this.metadata = new String[initialCapacity];
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Updates
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Inserts a document, or replaces it when the id is already indexed with different data.
+     *
+     * @return true when the index changed
+     */
+    public boolean upsert(String id, String content, String metadataJson, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        float[] normalized = normalize(vector);
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesById.get(id);
+            if (existing != null) {
+                if (sameDocument(existing, content, metadataJson, normalized)) {
+                    return false;
+                }
+                tombstone(existing);
+            }
+            insert(id, content, metadataJson, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            if (node == null) {
+                return false;
+            }
+            tombstone(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the graph from the live documents, dropping tombstoned nodes.
+     */
+    public HnswIndex compact() {
+        lock.readLock().lock();
+        try {
+            HnswIndex compacted = new HnswIndex(dimensions, m, efConstruction, Math.max(1024, size - deletedCount));
+            for (int node = 0; node < size; node++) {
+                if (!deleted.get(node)) {
+                    compacted.insert(ids[node], contents[node], metadata[node],
+                            Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions));
+                }
+            }
+            return compacted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void tombstone(int node) {
+        deleted.set(node);
+        deletedCount++;
+        nodesById.remove(ids[node]);
+    }
+
+    private boolean sameDocument(int node, String content, String metadataJson, float[] normalized) {
+        return content.equals(contents[node])
+                && metadataJson.equals(metadata[node])
+                && Arrays.equals(vectors, node * dimensions, (node + 1) * dimensions, normalized, 0, dimensions);
+    }
+
+    private void insert(String id, String content, String metadataJson, float[] normalized) {
+        ensureCapacity(size + 1);
+        int node = size++;
+        System.arraycopy(normalized, 0, vectors, node * dimensions, dimensions);
+        ids[node] = id;
+        contents[node] = content;
+        metadata[node] = metadataJson;
+        nodesById.put(id, node);
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[0];
+        }
+
+        if (entryPoint == -1) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        // Greedy descent through the layers above the new node's level
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(normalized, current, l);
+        }
+
+        // Connect the node on each of its layers
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> nearest = searchLayer(normalized, current, efConstruction, l);
+            int maxConnections = l == 0 ? maxConnectionsLevel0 : m;
+            int[] neighbours = nearest.stream()
+                    .limit(m)
+                    .mapToInt(Candidate::node)
+                    .toArray();
+            links[node][l] = neighbours;
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, l, maxConnections);
+            }
+            current = nearest.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private void connect(int from, int to, int level, int maxConnections) {
+        int[] current = links[from][level];
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = to;
+        if (extended.length > maxConnections) {
+            // Keep only the closest neighbours of the existing node
+            int base = from * dimensions;
+            extended = Arrays.stream(extended)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(n -> distance(vectors, base, n)))
+                    .limit(maxConnections)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        links[from][level] = extended;
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        vectors = Arrays.copyOf(vectors, newCapacity * dimensions);
+        links = Arrays.copyOf(links, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        contents = Arrays.copyOf(contents, newCapacity);
+        metadata = Arrays.copyOf(metadata, newCapacity);
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Search
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Finds the live documents closest to the query.
+     *
+     * @param query     Query vector (not necessarily normalized)
+     * @param topK      Maximum number of results
+     * @param ef        Size of the dynamic candidate list; larger means better recall
+     * @param threshold Minimum cosine similarity of returned documents
+     */
+    public List<Hit> search(float[] query, int topK, int ef, double threshold) {
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint == -1) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+            List<Hit> hits = new ArrayList<>(topK);
+            for (Candidate candidate : searchLayer(normalized, current, Math.max(ef, topK), 0)) {
+                float similarity = 1 - candidate.distance();
+                if (hits.size() == topK || similarity < threshold) {
+                    break;
+                }
+                int node = candidate.node();
+                if (!deleted.get(node)) {
+                    hits.add(new Hit(ids[node], contents[node], metadata[node], similarity));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : neighbours(current, level)) {
+                float d = distance(query, neighbour);
+                if (d < currentDistance) {
+                    current = neighbour;
+                    currentDistance = d;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer. Returns up to {@code ef} candidates ordered closest first.
+     */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int level) {
+        Set<Integer> visited = new HashSet<>();
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+
+        Candidate first = new Candidate(start, distance(query, start));
+        visited.add(start);
+        toVisit.add(first);
+        nearest.add(first);
+
+        while (!toVisit.isEmpty()) {
+            Candidate closest = toVisit.poll();
+            if (closest.distance() > nearest.peek().distance() && nearest.size() >= ef) {
+                break;
+            }
+            for (int neighbour : neighbours(closest.node(), level)) {
+                if (!visited.add(neighbour)) {
+                    continue;
+                }
+                float d = distance(query, neighbour);
+                if (nearest.size() < ef || d < nearest.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbour, d);
+                    toVisit.add(candidate);
+                    nearest.add(candidate);
+                    if (nearest.size() > ef) {
+                        nearest.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(nearest);
+        ordered.sort(Comparator.comparingDouble(Candidate::distance));
+        return ordered;
+    }
+
+    private int[] neighbours(int node, int level) {
+        int[][] nodeLinks = links[node];
+        return level < nodeLinks.length ? nodeLinks[level] : new int[0];
+    }
+
+    private float distance(float[] query, int node) {
+        int base = node * dimensions;
+        float dot = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * vectors[base + i];
+        }
+        return 1 - dot;
+    }
+
+    private float distance(float[] arena, int base, int node) {
+        int other = node * dimensions;
+        float dot = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            dot += arena[base + i] * vectors[other + i];
+        }
+        return 1 - dot;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Introspection
+    // ---------------------------------------------------------------------------------
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(nodesById.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Snapshot
+    // ---------------------------------------------------------------------------------
+
+    /**
+     * Writes the index to a snapshot file. The file is written next to the target and
+     * moved into place atomically, so a crash never leaves a half-written snapshot.
+     */
+    public void writeSnapshot(Path path, long watermarkMicros) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            out.writeLong(watermarkMicros);
+            for (int node = 0; node < size; node++) {
+                out.writeBoolean(deleted.get(node));
+                out.writeInt(links[node].length);
+                for (int[] levelLinks : links[node]) {
+                    out.writeInt(levelLinks.length);
+                    for (int neighbour : levelLinks) {
+                        out.writeInt(neighbour);
+                    }
+                }
+            }
+            for (int i = 0; i < size * dimensions; i++) {
+                out.writeFloat(vectors[i]);
+            }
+            for (int node = 0; node < size; node++) {
+                writeString(out, ids[node]);
+                writeString(out, contents[node]);
+                writeString(out, metadata[node]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads an index from a snapshot file through a memory-mapped read.
+     */
+    public static Snapshot readSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a supported HNSW snapshot: " + path);
+            }
+            int dimensions = buffer.getInt();
+            int m = buffer.getInt();
+            int efConstruction = buffer.getInt();
+            int size = buffer.getInt();
+
+            HnswIndex index = new HnswIndex(dimensions, m, efConstruction, Math.max(1024, size));
+            index.size = size;
+            index.entryPoint = buffer.getInt();
+            index.maxLevel = buffer.getInt();
+            long watermarkMicros = buffer.getLong();
+
+            for (int node = 0; node < size; node++) {
+                if (buffer.get() != 0) {
+                    index.deleted.set(node);
+                    index.deletedCount++;
+                }
+                int levels = buffer.getInt();
+                index.links[node] = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] levelLinks = new int[buffer.getInt()];
+                    buffer.asIntBuffer().get(levelLinks);
+                    buffer.position(buffer.position() + levelLinks.length * Integer.BYTES);
+                    index.links[node][l] = levelLinks;
+                }
+            }
+
+            buffer.asFloatBuffer().get(index.vectors, 0, size * dimensions);
+            buffer.position(buffer.position() + size * dimensions * Float.BYTES);
+
+            for (int node = 0; node < size; node++) {
+                index.ids[node] = readString(buffer);
+                index.contents[node] = readString(buffer);
+                index.metadata[node] = readString(buffer);
+                if (!index.deleted.get(node)) {
+                    index.nodesById.put(index.ids[node], node);
+                }
+            }
+            return new Snapshot(index, watermarkMicros);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springaiapp.vectorstore;
+
+import java.util.List;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@link VectorStore} that sets pgvector's {@code hnsw.ef_search} for every similarity search.
+ *
+ * {@code ef_search} is the size of the candidate list HNSW keeps while it walks the graph:
+ * higher values find more of the true nearest neighbours (recall) at the cost of latency.
+ * Each search uses {@code max(efSearch, topK)}, because HNSW never returns more rows than
+ * {@code ef_search}. The setting is applied with {@code SET LOCAL} semantics in a transaction
+ * around the delegate's query, so it never leaks to other users of the pooled connection.
+ *
+ * Educational Note:
+ * The query is embedded before the transaction starts. The delegate embeds it again, but
+ * that is an embedding cache hit, so no database connection is held during the Azure call.
+ */
+public class HnswSearchVectorStore implements VectorStore {
+
+    /** Upper limit pgvector accepts for hnsw.ef_search. */
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private final VectorStore delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final int efSearch;
+
+    public HnswSearchVectorStore(VectorStore delegate, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 EmbeddingModel embeddingModel, int efSearch) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.embeddingModel = embeddingModel;
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * The {@code hnsw.ef_search} value used for a search returning {@code topK} documents.
+     */
+    public static int efSearch(int configured, int topK) {
+        return Math.min(Math.max(configured, topK), MAX_EF_SEARCH);
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        embeddingModel.embed(request.getQuery());
+        String ef = String.valueOf(efSearch(efSearch, request.getTopK()));
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', ?, true)", String.class, ef);
+            return delegate.similaritySearch(request);
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "HnswSearchVectorStore";
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.springaiapp.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * {@link VectorStore} that combines full-text and vector retrieval with reciprocal-rank fusion.
+ *
+ * Vector similarity is good at paraphrases but weak at exact keywords such as product
+ * names ("ASA", "ACA"). Postgres full-text search is the opposite. Both legs run
+ * concurrently and their rankings are merged with reciprocal-rank fusion (RRF):
+ * {@code score(d) = sum over legs of 1 / (k + rank(d))}.
+ *
+ * The lexical leg searches a generated {@code content_tsv} column that covers the stored
+ * answer and the {@code prompt} metadata, backed by a GIN index. Both are created by the
+ * {@code V4__vector_store_full_text.sql} migration.
+ *
+ * Documents found by the vector leg keep their cosine similarity as score, so callers
+ * still see real similarities. Documents found only by the lexical leg have no score. The fused score is in the {@code rrfScore} metadata.
+ */
+public class HybridVectorStore implements VectorStore {
+
+    private static final String LEXICAL_SQL = """
+            SELECT id::text AS id, content, metadata::text AS metadata, ts_rank_cd(content_tsv, query) AS rank
+            FROM vector_store, replace(plainto_tsquery('english', ?)::text, '&', '|')::tsquery AS query
+            WHERE content_tsv @@ query
+            ORDER BY rank DESC
+            LIMIT ?
+            """;
+
+    private final VectorStore delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final int rrfK;
+    private final int candidatesPerLeg;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong vectorNanos = new AtomicLong();
+    private final AtomicLong lexicalNanos = new AtomicLong();
+    private final AtomicLong lexicalOnlyHits = new AtomicLong();
+
+    public HybridVectorStore(VectorStore delegate, JdbcTemplate jdbcTemplate, Executor executor,
+                             int rrfK, int candidatesPerLeg) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.rrfK = rrfK;
+        this.candidatesPerLeg = candidatesPerLeg;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.hasFilterExpression()) {
+            return delegate.similaritySearch(request);
+        }
+        int legTopK = request.getTopK() * candidatesPerLeg;
+
+        CompletableFuture<List<Document>> lexical = CompletableFuture.supplyAsync(
+                () -> timed(lexicalNanos, () -> lexicalSearch(request.getQuery(), legTopK)), executor);
+        List<Document> vector = timed(vectorNanos, () -> delegate.similaritySearch(
+                SearchRequest.from(request).topK(legTopK).build()));
+
+        List<Document> fused = fuse(vector, lexical.join(), request.getTopK());
+        searches.incrementAndGet();
+        return fused;
+    }
+
+    private List<Document> lexicalSearch(String query, int topK) {
+        return jdbcTemplate.query(LEXICAL_SQL, (rs, rowNum) -> Document.builder()
+                .id(rs.getString("id"))
+                .text(rs.getString("content"))
+                .metadata(MetadataJson.parse(rs.getString("metadata")))
+                .build(), query, topK);
+    }
+
+    private List<Document> fuse(List<Document> vector, List<Document> lexical, int topK) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (int rank = 0; rank < vector.size(); rank++) {
+            Document document = vector.get(rank);
+            documents.put(document.getId(), document);
+            scores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            Document document = lexical.get(rank);
+            documents.putIfAbsent(document.getId(), document);
+            scores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+
+        List<Document> fused = new ArrayList<>(documents.values());
+        fused.sort(Comparator.comparingDouble((Document d) -> scores.get(d.getId())).reversed());
+        if (fused.size() > topK) {
+            fused = fused.subList(0, topK);
+        }
+        for (Document document : fused) {
+            document.getMetadata().put("rrfScore", scores.get(document.getId()));
+            if (document.getScore() == null) {
+                lexicalOnlyHits.incrementAndGet();
+            }
+        }
+        return fused;
+    }
+
+    private static <T> T timed(AtomicLong total, java.util.function.Supplier<T> leg) {
+        long start = System.nanoTime();
+        try {
+            return leg.get();
+        } finally {
+            total.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = searches.get();
+        stats.put("searches", count);
+        stats.put("avgVectorLegMicros", count == 0 ? 0 : vectorNanos.get() / count / 1000);
+        stats.put("avgLexicalLegMicros", count == 0 ? 0 : lexicalNanos.get() / count / 1000);
+        stats.put("lexicalOnlyHits", lexicalOnlyHits.get());
+        return stats;
+    }
+
+    @Override
+    public String getName() {
+        return "HybridVectorStore";
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.springaiapp.vectorstore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parses the JSON {@code metadata} column of {@code vector_store} for read paths that
+ * query the table directly instead of going through PgVectorStore.
+ */
+final class MetadataJson {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private MetadataJson() {}
+
+    /**
+     * Returns a mutable map of the metadata, or an empty map when the JSON is missing or invalid.
+     */
+    static Map<String, Object> parse(String json) {
+        if (json == null) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            return new LinkedHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.springaiapp.vectorstore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary wire format of pgvector's {@code vector} type.
+ *
+ * The format is the one of {@code vector_send} / {@code vector_recv}, which is also used
+ * by {@code COPY ... (FORMAT binary)}:
+ * <pre>
+ *   int16   dimensions
+ *   int16   unused (0)
+ *   float32 x dimensions, big-endian
+ * </pre>
+ * Vectors are converted with bulk {@link java.nio.FloatBuffer} copies: there is no
+ * per-element boxing or string formatting, and callers can decode into a reused array.
+ *
+ * Educational Note:
+ * The text form {@code [0.0123,-0.0456,...]} of a 1536-dimension vector is about 15 KB,
+ * and both sides have to format and parse every number. The binary form is 6 KB and is
+ * copied as is.
+ */
+public final class PgVectorCodec {
+
+    private static final int HEADER_BYTES = 4;
+    private static final int MAX_DIMENSIONS = 16000;
+
+    private PgVectorCodec() {}
+
+    /**
+     * Size in bytes of an encoded vector.
+     */
+    public static int encodedSize(int dimensions) {
+        return HEADER_BYTES + Float.BYTES * dimensions;
+    }
+
+    /**
+     * Number of dimensions of an encoded vector.
+     */
+    public static int dimensions(byte[] binary) {
+        return ByteBuffer.wrap(binary).getShort(0);
+    }
+
+    /**
+     * Encodes a vector into a new array.
+     */
+    public static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(vector.length));
+        encode(vector, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Writes a vector at the buffer's position and advances it.
+     */
+    public static void encode(float[] vector, ByteBuffer target) {
+        if (vector.length > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException(String.format(
+                    "pgvector supports at most %d dimensions, got %d", MAX_DIMENSIONS, vector.length));
+        }
+        target.putShort((short) vector.length).putShort((short) 0);
+        target.asFloatBuffer().put(vector);
+        target.position(target.position() + Float.BYTES * vector.length);
+    }
+
+    /**
+     * Decodes a vector into a new array.
+     */
+    public static float[] decode(byte[] binary) {
+        float[] vector = new float[dimensions(binary)];
+        decode(binary, vector);
+        return vector;
+    }
+
+    /**
+     * Decodes a vector into an existing array, which must have exactly its number of dimensions.
+     */
+    public static void decode(byte[] binary, float[] target) {
+        int dimensions = dimensions(binary);
+        if (dimensions != target.length || binary.length != encodedSize(dimensions)) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected a %d-dimension vector but got %d dimensions in %d bytes",
+                    target.length, dimensions, binary.length));
+        }
+        ByteBuffer.wrap(binary, HEADER_BYTES, Float.BYTES * dimensions).asFloatBuffer().get(target);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.springaiapp.vectorstore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.example.springaiapp.vectorstore.QuantizedVectorStore.StorageMode;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repeatable Flyway migration that manages the compressed HNSW expression index searched
+ * by {@link QuantizedVectorStore}.
+ *
+ * It runs with the other migrations, before the application context serves anything, and
+ * again whenever its checksum changes: the storage mode, the dimensions, the
+ * drop-full-precision setting, or the HNSW build parameters of
+ * {@code R__vector_store_hnsw_index.sql}. Repeatable migrations run in description order,
+ * so it always runs after that script has (re)built the full-precision index.
+ *
+ * Each run:
+ * 1. Drops compressed indexes of the other mode, and the one of this mode if an
+ *    interrupted {@code CONCURRENTLY} build left it invalid
+ * 2. Builds the index of the configured mode {@code CONCURRENTLY}, unless it exists
+ * 3. With {@code dropFullPrecisionIndex}, drops the full-precision HNSW indexes
+ *
+ * In {@link StorageMode#FULL} mode it only removes compressed indexes.
+ */
+public class QuantizedIndexMigration implements JavaMigration {
+    private static final Logger logger = LoggerFactory.getLogger(QuantizedIndexMigration.class);
+
+    private static final String INDEXES_SQL = """
+            SELECT c.relname AS index_name, i.indisvalid AS valid
+            FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid
+            WHERE i.indrelid = 'vector_store'::regclass AND c.relname = ANY (?)
+            """;
+
+    private static final String FULL_PRECISION_INDEXES_SQL = """
+            SELECT indexname FROM pg_indexes
+            WHERE tablename = 'vector_store' AND schemaname = current_schema()
+              AND indexdef ILIKE '%USING hnsw (embedding vector_%'
+            """;
+
+    private final StorageMode mode;
+    private final int dimensions;
+    private final boolean dropFullPrecisionIndex;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+
+    public QuantizedIndexMigration(StorageMode mode, int dimensions, boolean dropFullPrecisionIndex,
+                                   int hnswM, int hnswEfConstruction) {
+        this.mode = mode;
+        this.dimensions = dimensions;
+        this.dropFullPrecisionIndex = dropFullPrecisionIndex;
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+    }
+
+    public static String indexName(StorageMode mode) {
+        return "vector_store_embedding_" + mode.name().toLowerCase() + "_idx";
+    }
+
+    static String indexDefinition(StorageMode mode, int dimensions) {
+        return mode == StorageMode.HALFVEC
+                ? String.format("(embedding::halfvec(%d)) halfvec_cosine_ops", dimensions)
+                : String.format("(binary_quantize(embedding)::bit(%d)) bit_hamming_ops", dimensions);
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        // No version: a repeatable migration
+        return null;
+    }
+
+    @Override
+    public String getDescription() {
+        return "vector store quantized index";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        // Enum name rather than its hash code, which differs between JVMs
+        return Objects.hash(mode.name(), dimensions, mode != StorageMode.FULL && dropFullPrecisionIndex, hnswM,
+                hnswEfConstruction);
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        // CREATE / DROP INDEX CONCURRENTLY
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        List<String> compressed = new ArrayList<>();
+        for (StorageMode candidate : StorageMode.values()) {
+            if (candidate != StorageMode.FULL) {
+                compressed.add(indexName(candidate));
+            }
+        }
+
+        try (PreparedStatement query = connection.prepareStatement(INDEXES_SQL)) {
+            query.setArray(1, connection.createArrayOf("text", compressed.toArray()));
+            List<String> drop = new ArrayList<>();
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("index_name");
+                    if (!name.equals(indexName(mode)) || !rs.getBoolean("valid")) {
+                        drop.add(name);
+                    }
+                }
+            }
+            for (String name : drop) {
+                logger.info("Dropping compressed index {}", name);
+                execute(connection, "DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            }
+        }
+        if (mode == StorageMode.FULL) {
+            return;
+        }
+
+        logger.info("Ensuring {} index {} exists on vector_store", mode, indexName(mode));
+        execute(connection, String.format("CREATE INDEX CONCURRENTLY IF NOT EXISTS %s ON vector_store USING hnsw (%s)",
+                indexName(mode), indexDefinition(mode, dimensions)));
+
+        if (dropFullPrecisionIndex) {
+            List<String> fullIndexes = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(FULL_PRECISION_INDEXES_SQL)) {
+                while (rs.next()) {
+                    fullIndexes.add(rs.getString(1));
+                }
+            }
+            for (String fullIndex : fullIndexes) {
+                logger.info("Dropping full-precision index {} in favour of {}", fullIndex, indexName(mode));
+                execute(connection, "DROP INDEX CONCURRENTLY IF EXISTS " + fullIndex);
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
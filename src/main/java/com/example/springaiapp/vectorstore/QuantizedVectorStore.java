@@ -0,0 +1,135 @@
+package com.example.springaiapp.vectorstore;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@link VectorStore} that searches a compressed HNSW index and re-ranks with full precision.
+ *
+ * The full-precision {@code vector(1536)} column stays the source of truth. An expression
+ * index over a compressed form of it is searched first:
+ * <ul>
+ *   <li>{@link StorageMode#HALFVEC} - 16-bit floats, half the size of the vector index</li>
+ *   <li>{@link StorageMode#BINARY} - one bit per dimension compared by Hamming distance,
+ *       about 32x smaller</li>
+ * </ul>
+ * The top {@code topK * rerankFactor} candidates from the compressed index are then
+ * re-ranked by exact cosine distance, which recovers the recall lost to quantization.
+ *
+ * Educational Note:
+ * Because the compressed form is an index expression rather than a new column, building
+ * the index is the whole migration: Postgres computes it for every existing row, and new
+ * rows are indexed automatically on insert. The index is built by
+ * {@link QuantizedIndexMigration} with the other Flyway migrations, not by this store.
+ */
+public class QuantizedVectorStore implements VectorStore {
+
+    /**
+     * How vectors are represented in the ANN index.
+     */
+    public enum StorageMode {
+        /** Plain {@code vector} HNSW index; this store is not used. */
+        FULL,
+        /** HNSW over {@code embedding::halfvec}. */
+        HALFVEC,
+        /** HNSW over {@code binary_quantize(embedding)::bit} with Hamming distance. */
+        BINARY
+    }
+
+    private static final String SEARCH_SQL = """
+            SELECT id::text AS id, content, metadata::text AS metadata, embedding <=> ?::vector AS distance
+            FROM (
+                SELECT id, content, metadata, embedding FROM vector_store
+                ORDER BY %s
+                LIMIT ?
+            ) candidates
+            WHERE embedding <=> ?::vector <= ?
+            ORDER BY distance
+            LIMIT ?
+            """;
+
+    private final VectorStore delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final StorageMode mode;
+    private final int dimensions;
+    private final int rerankFactor;
+    private final int efSearch;
+    private final String searchSql;
+
+    public QuantizedVectorStore(VectorStore delegate, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                EmbeddingModel embeddingModel, StorageMode mode, int dimensions, int rerankFactor,
+                                int efSearch) {
+        if (mode == StorageMode.FULL) {
+            throw new IllegalArgumentException("QuantizedVectorStore requires HALFVEC or BINARY mode");
+        }
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.embeddingModel = embeddingModel;
+        this.mode = mode;
+        this.dimensions = dimensions;
+        this.rerankFactor = rerankFactor;
+        this.efSearch = efSearch;
+        this.searchSql = String.format(SEARCH_SQL, mode == StorageMode.HALFVEC
+                ? String.format("embedding::halfvec(%d) <=> ?::halfvec(%d)", dimensions, dimensions)
+                : String.format("binary_quantize(embedding)::bit(%d) <~> binary_quantize(?::vector)", dimensions));
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.hasFilterExpression()) {
+            return delegate.similaritySearch(request);
+        }
+        PGvector query = new PGvector(embeddingModel.embed(request.getQuery()));
+        int candidates = Math.max(request.getTopK() * rerankFactor, 40);
+        double maxDistance = 1 - request.getSimilarityThreshold();
+        String ef = String.valueOf(HnswSearchVectorStore.efSearch(efSearch, candidates));
+
+        // ef_search must cover the over-fetch, or HNSW returns fewer candidates than asked for
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', ?, true)", String.class, ef);
+            return jdbcTemplate.query(searchSql, (rs, rowNum) -> {
+                double distance = rs.getDouble("distance");
+                Map<String, Object> metadata = MetadataJson.parse(rs.getString("metadata"));
+                metadata.put("distance", distance);
+                return Document.builder()
+                        .id(rs.getString("id"))
+                        .text(rs.getString("content"))
+                        .metadata(metadata)
+                        .score(1 - distance)
+                        .build();
+            }, query, query, candidates, query, maxDistance, request.getTopK());
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "QuantizedVectorStore";
+    }
+}
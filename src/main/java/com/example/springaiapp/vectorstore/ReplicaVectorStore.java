@@ -0,0 +1,61 @@
+package com.example.springaiapp.vectorstore;
+
+import java.util.List;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+/**
+ * {@link VectorStore} that answers similarity searches from the in-process
+ * {@link VectorStoreReplica} and sends everything else to the PgVector store.
+ *
+ * Writes always go to Postgres; the replica picks them up on its next sync. Searches
+ * fall back to Postgres while the replica is still warming up, and for requests with
+ * a filter expression, which the local index does not evaluate.
+ */
+public class ReplicaVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+    private final VectorStoreReplica replica;
+    private final EmbeddingModel embeddingModel;
+
+    public ReplicaVectorStore(VectorStore delegate, VectorStoreReplica replica, EmbeddingModel embeddingModel) {
+        this.delegate = delegate;
+        this.replica = replica;
+        this.embeddingModel = embeddingModel;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+        replica.remove(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+        replica.requestFullResync();
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (!replica.isReady() || request.hasFilterExpression()) {
+            return delegate.similaritySearch(request);
+        }
+        float[] queryEmbedding = embeddingModel.embed(request.getQuery());
+        return replica.search(queryEmbedding, request.getTopK(), request.getSimilarityThreshold());
+    }
+
+    @Override
+    public String getName() {
+        return "ReplicaVectorStore";
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.springaiapp.vectorstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process read replica of the {@code vector_store} table backed by an {@link HnswIndex}.
+ *
+ * On startup the replica loads the last snapshot file (if any) and is immediately ready to
+ * serve searches. A background thread then keeps it in sync with Postgres incrementally:
+ * rows are fetched by their {@code updated_at} change watermark (maintained by a trigger,
+ * see {@code V3__vector_store_change_tracking.sql}) and upserted by id. Rows
+ * deleted outside this application are removed by a periodic full id reconciliation.
+ *
+ * All index updates run on the single sync thread; searches run concurrently on the
+ * request threads.
+ */
+@Component
+@ConditionalOnProperty(name = "app.vector-replica.enabled", havingValue = "true")
+public class VectorStoreReplica implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(VectorStoreReplica.class);
+
+    private static final String CHANGES_SQL = """
+            SELECT id::text AS id, content, metadata::text AS metadata, vector_send(embedding) AS embedding,
+                   (EXTRACT(EPOCH FROM updated_at) * 1000000)::bigint AS updated_micros
+            FROM vector_store
+            WHERE (updated_at, id::text) > (to_timestamp(? / 1000000.0), ?)
+            ORDER BY updated_at, id::text
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vector-replica-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.vector-replica.dimensions:1536}")
+    private int dimensions;
+
+    @Value("${app.vector-replica.m:16}")
+    private int m;
+
+    @Value("${app.vector-replica.ef-construction:64}")
+    private int efConstruction;
+
+    @Value("${app.vector-replica.ef-search:40}")
+    private int efSearch;
+
+    @Value("${app.vector-replica.snapshot-path:${java.io.tmpdir}/vector_store.hnsw}")
+    private Path snapshotPath;
+
+    @Value("${app.vector-replica.sync-interval:5s}")
+    private Duration syncInterval;
+
+    @Value("${app.vector-replica.snapshot-interval:5m}")
+    private Duration snapshotInterval;
+
+    @Value("${app.vector-replica.full-resync-interval:10m}")
+    private Duration fullResyncInterval;
+
+    @Value("${app.vector-replica.watermark-overlap:5s}")
+    private Duration watermarkOverlap;
+
+    @Value("${app.vector-replica.batch-size:500}")
+    private int batchSize;
+
+    private volatile HnswIndex index;
+    private volatile boolean ready = false;
+    private volatile boolean running = false;
+    private volatile long watermarkMicros = 0;
+    private boolean dirty = false;
+    private long lastSnapshotNanos = System.nanoTime();
+    private long lastFullResyncNanos = System.nanoTime();
+
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong rowsSynced = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+
+    public VectorStoreReplica(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Read path
+    // ---------------------------------------------------------------------------------
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Searches the local index. Callers must check {@link #isReady()} first.
+     */
+    public List<Document> search(float[] queryEmbedding, int topK, double similarityThreshold) {
+        long start = System.nanoTime();
+        List<HnswIndex.Hit> hits = index.search(queryEmbedding, topK, efSearch, similarityThreshold);
+        List<Document> documents = new ArrayList<>(hits.size());
+        for (HnswIndex.Hit hit : hits) {
+            Map<String, Object> metadata = MetadataJson.parse(hit.metadataJson());
+            metadata.put("distance", 1 - hit.similarity());
+            documents.add(Document.builder()
+                    .id(hit.id())
+                    .text(hit.content())
+                    .metadata(metadata)
+                    .score((double) hit.similarity())
+                    .build());
+        }
+        searches.incrementAndGet();
+        searchNanos.addAndGet(System.nanoTime() - start);
+        return documents;
+    }
+
+    /**
+     * Removes documents deleted through this application without waiting for reconciliation.
+     */
+    public void remove(List<String> ids) {
+        syncExecutor.execute(() -> ids.forEach(id -> index.remove(id)));
+    }
+
+    /**
+     * Schedules a full id reconciliation, for deletes whose ids are not known.
+     */
+    public void requestFullResync() {
+        syncExecutor.execute(this::reconcileDeletes);
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Sync
+    // ---------------------------------------------------------------------------------
+
+    private void loadSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            logger.info("No vector replica snapshot at {}, building from Postgres", snapshotPath);
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            HnswIndex.Snapshot snapshot = HnswIndex.readSnapshot(snapshotPath);
+            if (snapshot.index().dimensions() != dimensions) {
+                logger.warn("Ignoring vector replica snapshot with {} dimensions, expected {}",
+                        snapshot.index().dimensions(), dimensions);
+                return;
+            }
+            index = snapshot.index();
+            watermarkMicros = snapshot.watermarkMicros();
+            ready = true;
+            logger.info("Loaded vector replica snapshot with {} documents in {} ms",
+                    index.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable vector replica snapshot {}", snapshotPath, e);
+        }
+    }
+
+    private void sync() {
+        try {
+            long start = System.nanoTime();
+            int changed = pullChanges();
+            if (System.nanoTime() - lastFullResyncNanos > fullResyncInterval.toNanos()) {
+                reconcileDeletes();
+            }
+            if (index.deletedCount() > index.size() / 5 && index.deletedCount() > 100) {
+                index = index.compact();
+                dirty = true;
+            }
+            if (dirty && System.nanoTime() - lastSnapshotNanos > snapshotInterval.toNanos()) {
+                writeSnapshot();
+            }
+            if (!ready) {
+                ready = true;
+                logger.info("Vector replica ready with {} documents", index.size());
+            }
+            syncs.incrementAndGet();
+            if (changed > 0) {
+                logger.debug("Vector replica applied {} changes in {} ms", changed,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (Exception e) {
+            logger.warn("Vector replica sync failed, will retry", e);
+        }
+    }
+
+    /**
+     * Pulls rows changed since the watermark, page by page. The watermark is moved back by
+     * a small overlap because {@code now()} is taken at transaction start, so a row can
+     * become visible after rows with a later timestamp. Re-reading a row is harmless
+     * because upserts of unchanged documents are no-ops.
+     *
+     * Rows are applied while the result set is read. Embeddings arrive in pgvector's binary
+     * format and are decoded into one reused array, because the index copies them on upsert.
+     */
+    private int pullChanges() {
+        long cursorMicros = Math.max(0, watermarkMicros - watermarkOverlap.toNanos() / 1000);
+        String cursorId = "";
+        float[] embedding = new float[dimensions];
+        int total = 0;
+        while (true) {
+            Page page = new Page();
+            jdbcTemplate.query(CHANGES_SQL, rs -> {
+                page.rows++;
+                page.lastId = rs.getString("id");
+                page.lastMicros = rs.getLong("updated_micros");
+                String content = rs.getString("content");
+                byte[] vector = rs.getBytes("embedding");
+                if (content != null && vector != null) {
+                    String metadata = rs.getString("metadata");
+                    PgVectorCodec.decode(vector, embedding);
+                    if (index.upsert(page.lastId, content, metadata == null ? "{}" : metadata, embedding)) {
+                        dirty = true;
+                        page.applied++;
+                    }
+                }
+            }, cursorMicros, cursorId, batchSize);
+
+            if (page.rows > 0) {
+                cursorMicros = page.lastMicros;
+                cursorId = page.lastId;
+                watermarkMicros = Math.max(watermarkMicros, page.lastMicros);
+            }
+            total += page.applied;
+            rowsSynced.addAndGet(page.rows);
+            if (page.rows < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private void reconcileDeletes() {
+        Set<String> remoteIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id::text FROM vector_store", String.class));
+        int removed = 0;
+        for (String id : index.ids()) {
+            if (!remoteIds.contains(id) && index.remove(id)) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            dirty = true;
+            logger.info("Vector replica removed {} documents deleted in Postgres", removed);
+        }
+        lastFullResyncNanos = System.nanoTime();
+    }
+
+    private void writeSnapshot() {
+        try {
+            long start = System.nanoTime();
+            index.writeSnapshot(snapshotPath, watermarkMicros);
+            dirty = false;
+            lastSnapshotNanos = System.nanoTime();
+            logger.info("Wrote vector replica snapshot with {} documents to {} in {} ms", index.size(), snapshotPath,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            logger.warn("Failed to write vector replica snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    /** Progress through one page of changed rows. */
+    private static final class Page {
+        int rows;
+        int applied;
+        String lastId;
+        long lastMicros;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Lifecycle
+    // ---------------------------------------------------------------------------------
+
+    @Override
+    public void start() {
+        index = new HnswIndex(dimensions, m, efConstruction);
+        loadSnapshot();
+        syncExecutor.scheduleWithFixedDelay(this::sync, 0, syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        syncExecutor.shutdown();
+        try {
+            syncExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dirty) {
+            writeSnapshot();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long searchCount = searches.get();
+        stats.put("ready", ready);
+        stats.put("documents", index == null ? 0 : index.size());
+        stats.put("tombstones", index == null ? 0 : index.deletedCount());
+        stats.put("watermarkMicros", watermarkMicros);
+        stats.put("syncs", syncs.get());
+        stats.put("rowsSynced", rowsSynced.get());
+        stats.put("searches", searchCount);
+        stats.put("avgSearchMicros", searchCount == 0 ? 0 : searchNanos.get() / searchCount / 1000);
+        return stats;
+    }
+}
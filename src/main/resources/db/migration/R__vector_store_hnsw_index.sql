@@ -0,0 +1,24 @@
+-- HNSW index on the full-precision embeddings, built with app.vector-index.m and
+-- app.vector-index.ef-construction. Flyway re-runs this script whenever those values change.
+--
+-- The index is built CONCURRENTLY so writes continue during the build; Flyway runs the
+-- script outside a transaction (spring.flyway mixed mode is enabled by FlywayConfig).
+-- m = ${hnsw_m}, ef_construction = ${hnsw_ef_construction}
+
+-- Drop the index if it was built with other parameters, or left invalid by an interrupted build
+DO $$
+BEGIN
+	IF EXISTS (
+		SELECT 1 FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid
+		WHERE c.relname = 'vector_store_embedding_hnsw_idx'
+			AND c.relnamespace = current_schema()::regnamespace
+			AND (NOT i.indisvalid
+				OR c.reloptions IS DISTINCT FROM ARRAY['m=${hnsw_m}', 'ef_construction=${hnsw_ef_construction}'])
+	) THEN
+		DROP INDEX vector_store_embedding_hnsw_idx;
+	END IF;
+END;
+$$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS vector_store_embedding_hnsw_idx ON vector_store
+	USING hnsw (embedding vector_cosine_ops) WITH (m = ${hnsw_m}, ef_construction = ${hnsw_ef_construction});
@@ -0,0 +1,32 @@
+-- Vector store table used by Spring AI's PgVectorStore.
+-- Written with IF NOT EXISTS so databases created by the old schema.sql are adopted as they are.
+CREATE EXTENSION IF NOT EXISTS vector;
+CREATE EXTENSION IF NOT EXISTS hstore;
+CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
+
+CREATE TABLE IF NOT EXISTS vector_store (
+	id uuid DEFAULT uuid_generate_v4() PRIMARY KEY,
+	content text,
+	metadata json,
+	embedding vector(1536)
+);
+
+-- Semantic answer cache: every fresh answer keyed by the embedding of its question, because
+-- vector_store embeds the answers
+CREATE TABLE IF NOT EXISTS answer_cache (
+	id bigserial PRIMARY KEY,
+	question text NOT NULL,
+	embedding vector(1536) NOT NULL,
+	answer text NOT NULL,
+	created_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS answer_cache_embedding_idx ON answer_cache USING hnsw (embedding vector_cosine_ops);
+CREATE INDEX IF NOT EXISTS answer_cache_created_at_idx ON answer_cache (created_at);
+
+-- Ingestion manifest: content hash of every pre-loaded document, so unchanged documents are not re-embedded on startup
+CREATE TABLE IF NOT EXISTS ingestion_manifest (
+	document_id uuid PRIMARY KEY,
+	content_hash char(64) NOT NULL,
+	ingested_at timestamptz NOT NULL DEFAULT now()
+);
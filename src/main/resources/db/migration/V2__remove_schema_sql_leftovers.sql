@@ -0,0 +1,19 @@
+-- schema.sql created an unnamed HNSW index on every restart (vector_store_embedding_idx,
+-- vector_store_embedding_idx1, ...), and data.sql inserted another zero-vector sample row.
+-- The managed index is created by R__vector_store_hnsw_index.sql.
+DO $$
+DECLARE
+	duplicate record;
+BEGIN
+	FOR duplicate IN
+		SELECT indexname FROM pg_indexes
+		WHERE schemaname = current_schema()
+			AND tablename = 'vector_store'
+			AND indexname ~ '^vector_store_embedding_idx[0-9]*$'
+	LOOP
+		EXECUTE format('DROP INDEX IF EXISTS %I', duplicate.indexname);
+	END LOOP;
+END;
+$$;
+
+DELETE FROM vector_store WHERE metadata->>'source' = 'initial_data';
@@ -0,0 +1,14 @@
+-- updated_at lets the in-process vector replica pull only the rows changed since its last sync
+ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS updated_at timestamptz NOT NULL DEFAULT now();
+CREATE INDEX IF NOT EXISTS vector_store_updated_at_idx ON vector_store (updated_at);
+
+CREATE OR REPLACE FUNCTION vector_store_touch_updated_at() RETURNS trigger AS $$
+BEGIN
+	NEW.updated_at := now();
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS vector_store_touch_updated_at ON vector_store;
+CREATE TRIGGER vector_store_touch_updated_at BEFORE UPDATE ON vector_store
+	FOR EACH ROW EXECUTE FUNCTION vector_store_touch_updated_at();
@@ -0,0 +1,26 @@
+-- Full-text search column for hybrid retrieval (app.retrieval.hybrid.enabled): the prompt
+-- metadata weighted above the stored answer. Adding a stored generated column rewrites the
+-- table once, here rather than while the application is serving.
+ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS content_tsv tsvector
+	GENERATED ALWAYS AS (
+		setweight(to_tsvector('english', coalesce(metadata->>'prompt', '')), 'A') ||
+		setweight(to_tsvector('english', coalesce(content, '')), 'B')
+	) STORED;
+
+-- The GIN index is built CONCURRENTLY, so Flyway runs this script outside a transaction
+-- (mixed mode, see FlywayConfig). Drop an index left invalid by an interrupted build so the
+-- next run rebuilds it instead of skipping it.
+DO $$
+BEGIN
+	IF EXISTS (
+		SELECT 1 FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid
+		WHERE c.relname = 'vector_store_content_tsv_idx'
+			AND c.relnamespace = current_schema()::regnamespace
+			AND NOT i.indisvalid
+	) THEN
+		DROP INDEX vector_store_content_tsv_idx;
+	END IF;
+END;
+$$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS vector_store_content_tsv_idx ON vector_store USING gin (content_tsv);
@@ -0,0 +1,10 @@
+-- pg_prewarm lets the startup warm-up load the HNSW index into shared buffers.
+-- It is optional: on servers where the extension is not allow-listed (on Azure, see the
+-- azure.extensions server parameter) the warm-up falls back to running searches.
+DO $$
+BEGIN
+	CREATE EXTENSION IF NOT EXISTS pg_prewarm;
+EXCEPTION WHEN OTHERS THEN
+	RAISE NOTICE 'pg_prewarm is not available: %', SQLERRM;
+END;
+$$;
@@ -0,0 +1,19 @@
+-- Conversation memory: every turn of a session, and a rolling summary of the turns that
+-- have left the recent-message window
+CREATE TABLE IF NOT EXISTS chat_history (
+	id bigserial PRIMARY KEY,
+	session_id text NOT NULL,
+	prompt text NOT NULL,
+	response text NOT NULL,
+	created_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS chat_history_session_idx ON chat_history (session_id, id);
+
+CREATE TABLE IF NOT EXISTS conversation_summary (
+	session_id text PRIMARY KEY,
+	summary text NOT NULL,
+	-- id of the last chat_history turn folded into the summary
+	summarized_through bigint NOT NULL,
+	updated_at timestamptz NOT NULL DEFAULT now()
+);
@@ -0,0 +1,20 @@
+-- Asynchronous blog generation jobs. checkpoint holds the writer/editor loop's progress
+-- after its last completed model call, so another replica can continue an interrupted job.
+CREATE TABLE IF NOT EXISTS blog_job (
+	id uuid PRIMARY KEY,
+	topic text NOT NULL,
+	-- QUEUED, RUNNING, SUCCEEDED or FAILED
+	status text NOT NULL,
+	checkpoint jsonb,
+	result jsonb,
+	error text,
+	attempts int NOT NULL DEFAULT 0,
+	-- replica running the job, and when it last showed it is alive
+	owner text,
+	heartbeat_at timestamptz,
+	created_at timestamptz NOT NULL DEFAULT now(),
+	updated_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS blog_job_pending_idx ON blog_job (created_at)
+	WHERE status IN ('QUEUED', 'RUNNING');
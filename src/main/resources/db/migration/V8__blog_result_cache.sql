@@ -0,0 +1,17 @@
+-- Approved blog posts keyed by the embedding of their topic, so the same or a paraphrased
+-- topic is answered without running the writer/editor loop again
+CREATE TABLE IF NOT EXISTS blog_result_cache (
+	id uuid PRIMARY KEY,
+	topic text NOT NULL,
+	embedding vector(1536) NOT NULL,
+	-- the GET /api/blog response: topic, content and metadata
+	response jsonb NOT NULL,
+	-- tokens and time the generation took, reported as saved on every hit
+	total_tokens int NOT NULL,
+	wall_clock_millis bigint NOT NULL,
+	created_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS blog_result_cache_embedding_idx ON blog_result_cache
+	USING hnsw (embedding vector_cosine_ops);
+CREATE INDEX IF NOT EXISTS blog_result_cache_created_at_idx ON blog_result_cache (created_at);
@@ -0,0 +1,127 @@
+package com.example.springaiapp.draft;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Each rule's pass and fail case. A failing rule sends the draft back to the writer
+ * without an editor call, so a false failure costs a rewrite and a missed one an editor call.
+ */
+class DraftRulesTest {
+
+    private static final String GOOD_DRAFT = """
+            SPRING AI ON AZURE
+
+            Spring AI connects Java applications to Azure OpenAI. It handles prompts, e.g. system messages.
+
+            Embeddings are stored in Postgres with pgvector. Searches use an HNSW index.
+            """;
+
+    private static DraftText draft(String text) {
+        return new DraftText(text);
+    }
+
+    private static SentenceLimitRule sentenceLimit(int maxSentences) {
+        SentenceLimitRule rule = new SentenceLimitRule();
+        ReflectionTestUtils.setField(rule, "maxSentences", maxSentences);
+        return rule;
+    }
+
+    @Test
+    void aGoodDraftPassesEveryRule() {
+        DraftRuleEngine engine = new DraftRuleEngine(List.of(sentenceLimit(10), new AsciiRule(), new TitleRule(),
+                new MarkdownRule(), new ParagraphRule()));
+
+        assertThat(engine.check(GOOD_DRAFT)).isEmpty();
+    }
+
+    @Test
+    void sentenceLimitCountsTheBodyOnly() {
+        // The title has two sentence endings of its own; the body has four sentences
+        String text = "WHY? BECAUSE.\n\nOne. Two.\n\nThree. Four.";
+
+        assertThat(sentenceLimit(4).check(draft(text))).isEmpty();
+        assertThat(sentenceLimit(3).check(draft(text)))
+                .singleElement().asString().contains("4 sentences").contains("at most 3");
+    }
+
+    @Test
+    void asciiRulePassesPlainText() {
+        assertThat(new AsciiRule().check(draft(GOOD_DRAFT))).isEmpty();
+    }
+
+    @Test
+    void asciiRuleNamesTypographicCharactersAndTheirReplacements() {
+        List<String> problems = new AsciiRule().check(draft("TITLE\n\nIt’s fast — really… café."));
+
+        assertThat(problems).singleElement().asString()
+                .contains("U+2019 (1x) with '")
+                .contains("U+2014 (1x) with -")
+                .contains("U+2026 (1x) with ...")
+                .contains("U+00E9 (1x)")
+                .endsWith(".");
+    }
+
+    @Test
+    void titleRulePassesAnAllCapsTitle() {
+        assertThat(new TitleRule().check(draft("\n\nSPRING AI 1.0: WHAT'S NEW\n\nBody."))).isEmpty();
+    }
+
+    @Test
+    void titleRuleRejectsMissingLowerCaseMarkedAndLongTitles() {
+        TitleRule rule = new TitleRule();
+
+        assertThat(rule.check(draft("  "))).singleElement().asString().contains("empty");
+        assertThat(rule.check(draft("Spring AI on Azure\n\nBody."))).singleElement().asString().contains("ALL CAPS");
+        assertThat(rule.check(draft("# SPRING AI\n\nBody."))).singleElement().asString().contains("'#'");
+        assertThat(rule.check(draft("A".repeat(121) + "\n\nBody."))).singleElement().asString().contains("short title");
+    }
+
+    @Test
+    void markdownRulePassesPlainText() {
+        assertThat(new MarkdownRule().check(draft(GOOD_DRAFT + "\nCosts are 2 * 3 = 6 cents, i.e. cheap.\n"))).isEmpty();
+    }
+
+    @Test
+    void markdownRuleNamesEachKindOfMarkup() {
+        MarkdownRule rule = new MarkdownRule();
+
+        assertThat(rule.check(draft("TITLE\n\n## Heading"))).singleElement().asString().contains("headings");
+        assertThat(rule.check(draft("TITLE\n\n- item"))).singleElement().asString().contains("bullet or numbered lists");
+        assertThat(rule.check(draft("TITLE\n\n1. item"))).singleElement().asString().contains("bullet or numbered lists");
+        assertThat(rule.check(draft("TITLE\n\n> quote"))).singleElement().asString().contains("block quotes");
+        assertThat(rule.check(draft("TITLE\n\nRun `mvn test` now."))).singleElement().asString().contains("inline code");
+        assertThat(rule.check(draft("TITLE\n\nThis is **bold**."))).singleElement().asString().contains("bold or italic");
+        assertThat(rule.check(draft("TITLE\n\nSee [docs](https://spring.io)."))).singleElement().asString().contains("links");
+        assertThat(rule.check(draft("TITLE\n\n<b>bold</b>"))).singleElement().asString().contains("HTML tags");
+    }
+
+    @Test
+    void paragraphRulePassesBlankLineSeparatedParagraphs() {
+        assertThat(new ParagraphRule().check(draft(GOOD_DRAFT))).isEmpty();
+    }
+
+    @Test
+    void paragraphRuleRejectsMissingBodyMissingSeparatorAndBrokenLines() {
+        ParagraphRule rule = new ParagraphRule();
+
+        assertThat(rule.check(draft("TITLE"))).singleElement().asString().contains("below the title");
+        assertThat(rule.check(draft("TITLE\nBody."))).singleElement().asString().contains("between the title");
+        assertThat(rule.check(draft("TITLE\n\nA paragraph broken\nover two lines.")))
+                .singleElement().asString().contains("Separate paragraphs");
+    }
+
+    @Test
+    void engineReportsEachViolationWithItsRule() {
+        DraftRuleEngine engine = new DraftRuleEngine(List.of(sentenceLimit(1), new TitleRule()));
+
+        List<DraftViolation> violations = engine.check("Spring AI\n\nOne. Two.");
+
+        assertThat(violations).extracting(DraftViolation::rule).containsExactly("sentence-limit", "title");
+        assertThat(DraftRuleEngine.feedback(violations)).startsWith("The draft breaks these requirements:");
+    }
+}
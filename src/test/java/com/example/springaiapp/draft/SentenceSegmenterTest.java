@@ -0,0 +1,63 @@
+package com.example.springaiapp.draft;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The segmenter decides whether a draft is sent back to the writer without asking the
+ * editor, so every miscount is a wrong rejection or a paid editor call.
+ */
+class SentenceSegmenterTest {
+
+    @Test
+    void countsSentencesEndedByPunctuation() {
+        assertThat(SentenceSegmenter.count("Spring AI is here. It talks to Azure! Does it stream?")).isEqualTo(3);
+    }
+
+    @Test
+    void emptyAndBlankTextHaveNoSentences() {
+        assertThat(SentenceSegmenter.count("")).isZero();
+        assertThat(SentenceSegmenter.count("  \n\n ")).isZero();
+        assertThat(SentenceSegmenter.count("...")).isZero();
+    }
+
+    @Test
+    void abbreviationsDoNotEndASentence() {
+        assertThat(SentenceSegmenter.count("Use a client library, e.g. Spring AI. It is small.")).isEqualTo(2);
+        assertThat(SentenceSegmenter.count("Dr. Smith reviewed it. Mr. Jones did not.")).isEqualTo(2);
+        assertThat(SentenceSegmenter.count("Vectors, embeddings, etc. are covered. I.e. everything.")).isEqualTo(2);
+        assertThat(SentenceSegmenter.count("The U.S. team shipped it at 9 a.m. on Monday.")).isEqualTo(1);
+    }
+
+    @Test
+    void initialsDoNotEndASentence() {
+        assertThat(SentenceSegmenter.count("J. R. R. Tolkien wrote it. We read it.")).isEqualTo(2);
+    }
+
+    @Test
+    void dotsInsideNumbersAndNamesDoNotEndASentence() {
+        assertThat(SentenceSegmenter.count("Version 3.4.3 costs 0.5 cents. See spring.io for details.")).isEqualTo(2);
+    }
+
+    @Test
+    void repeatedTerminatorsEndOneSentence() {
+        assertThat(SentenceSegmenter.count("Really?! Yes... It works!!! Done.")).isEqualTo(4);
+    }
+
+    @Test
+    void closingQuotesAndBracketsBelongToTheEnding() {
+        assertThat(SentenceSegmenter.count("He said \"ship it.\" Then he left (for good.) The end.")).isEqualTo(3);
+    }
+
+    @Test
+    void paragraphsWithoutEndPunctuationCountAsOneSentence() {
+        assertThat(SentenceSegmenter.count("A paragraph without a stop\n\nAnother one. With two sentences")).isEqualTo(3);
+        assertThat(SentenceSegmenter.count("A last paragraph without a stop")).isEqualTo(1);
+    }
+
+    @Test
+    void aLineBreakInsideAParagraphDoesNotEndASentence() {
+        assertThat(SentenceSegmenter.count("A sentence broken\nover two lines.")).isEqualTo(1);
+    }
+}
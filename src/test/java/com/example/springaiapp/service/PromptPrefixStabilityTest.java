@@ -0,0 +1,156 @@
+package com.example.springaiapp.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.example.springaiapp.draft.DraftRuleEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that every role's prompt starts with a byte-identical system message, whatever
+ * the topic, draft, feedback or retrieved context, so provider-side prompt caching can
+ * reuse it. The chat model is a local stand-in that records each prompt it receives.
+ */
+class PromptPrefixStabilityTest {
+
+    /**
+     * Stand-in chat model: answers by role and records every prompt.
+     */
+    private static final class RecordingChatModel implements ChatModel {
+        final List<Prompt> prompts = Collections.synchronizedList(new ArrayList<>());
+        private final Function<Prompt, String> answers;
+
+        RecordingChatModel(Function<Prompt, String> answers) {
+            this.answers = answers;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            prompts.add(prompt);
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(answers.apply(prompt)))));
+        }
+
+        List<String> systemTextsStartingWith(String prefix) {
+            synchronized (prompts) {
+                return prompts.stream().map(PromptPrefixStabilityTest::systemText)
+                        .filter(text -> text.startsWith(prefix)).toList();
+            }
+        }
+    }
+
+    private static String systemText(Prompt prompt) {
+        Message first = prompt.getInstructions().get(0);
+        assertThat(first).as("first message of every prompt").isInstanceOf(SystemMessage.class);
+        return first.getText();
+    }
+
+    private static String userText(Prompt prompt) {
+        List<Message> messages = prompt.getInstructions();
+        return messages.get(messages.size() - 1).getText();
+    }
+
+    private final TokenCounter tokenCounter = new TokenCounter("cl100k_base", "");
+    private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry(), false);
+
+    @Test
+    void editorPromptsShareTheEditorPrefix() {
+        assertThat(BlogWriterService.EVALUATION_SYSTEM).startsWith(BlogWriterService.EDITOR_PREFIX);
+        assertThat(BlogWriterService.SCORING_SYSTEM).startsWith(BlogWriterService.EDITOR_PREFIX);
+    }
+
+    @Test
+    void blogPromptPrefixesAreByteStable() {
+        RecordingChatModel model = new RecordingChatModel(prompt -> {
+            String system = systemText(prompt);
+            String user = userText(prompt);
+            if (system.equals(BlogWriterService.WRITER_SYSTEM)) {
+                // A different draft for every call, so the editor prompts differ too
+                return "DRAFT " + Integer.toHexString(user.hashCode()) + "\n\nA sentence about " + user.length() + ".";
+            }
+            if (system.equals(BlogWriterService.SCORING_SYSTEM)) {
+                return "SCORE: 5\nFEEDBACK: Add an example for draft " + user.length();
+            }
+            return "NEEDS_IMPROVEMENT Tighten paragraph " + user.length();
+        });
+        BlogWriterService service = new BlogWriterService(ChatClient.builder(model), new SimpleAsyncTaskExecutor(),
+                new DraftRuleEngine(List.of()), tokenCounter, metrics);
+        ReflectionTestUtils.setField(service, "maxCandidates", 3);
+        ReflectionTestUtils.setField(service, "passScore", 8.0);
+
+        service.generateBlogPostWithMetadata("Spring AI with Azure OpenAI", 1);
+        service.generateBlogPostWithMetadata("Virtual threads in Java 21", 1);
+        service.generateBlogPostWithMetadata("Tuning HNSW indexes in pgvector", 3);
+
+        Map<String, String> roles = Map.of(
+                "writer", BlogWriterService.WRITER_SYSTEM,
+                "editor", BlogWriterService.EVALUATION_SYSTEM,
+                "scorer", BlogWriterService.SCORING_SYSTEM);
+        roles.forEach((role, system) -> {
+            List<Prompt> calls;
+            synchronized (model.prompts) {
+                calls = model.prompts.stream().filter(prompt -> systemText(prompt).equals(system)).toList();
+            }
+            assertThat(calls).as("%s calls", role).hasSizeGreaterThan(1);
+            // The variable parts all went into the user message
+            assertThat(calls.stream().map(PromptPrefixStabilityTest::userText).distinct().count())
+                    .as("distinct %s user messages", role).isGreaterThan(1);
+        });
+        // Every call used one of the three constants, byte for byte
+        assertThat(model.prompts).allSatisfy(prompt -> assertThat(roles.values()).contains(systemText(prompt)));
+        assertThat(model.systemTextsStartingWith("You are a critical blog editor"))
+                .allSatisfy(text -> assertThat(text).startsWith(BlogWriterService.EDITOR_PREFIX));
+    }
+
+    @Test
+    void ragAnswerPromptPrefixIsByteStable() {
+        RecordingChatModel model = new RecordingChatModel(prompt -> "An answer.");
+        RagService ragService = new RagService(ChatClient.builder(model));
+
+        VectorStore vectorStore = mock(VectorStore.class);
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            String query = invocation.getArgument(0, SearchRequest.class).getQuery();
+            return List.of(new Document("Stored answer about " + query, Map.of("prompt", "Earlier: " + query)));
+        });
+        ContextAssembler contextAssembler = new ContextAssembler(tokenCounter);
+        ReflectionTestUtils.setField(contextAssembler, "maxTokens", 1500);
+        ReflectionTestUtils.setField(contextAssembler, "maxPassageTokens", 400);
+        ReflectionTestUtils.setField(contextAssembler, "duplicateSimilarity", 0.9);
+        ragService.vectorStore = vectorStore;
+        ragService.answerCache = mock(SemanticAnswerCache.class);
+        ragService.interactionWriter = mock(InteractionWriter.class);
+        ragService.contextAssembler = contextAssembler;
+        ragService.metrics = metrics;
+
+        List<String> queries = List.of("What is Spring AI?", "How do I stream tokens?", "Why use pgvector?");
+        queries.forEach(ragService::processQuery);
+
+        assertThat(model.prompts).hasSize(queries.size());
+        assertThat(model.prompts).allSatisfy(prompt -> assertThat(systemText(prompt)).isEqualTo(RagService.SYSTEM_PROMPT));
+        for (int i = 0; i < queries.size(); i++) {
+            assertThat(userText(model.prompts.get(i))).contains("Stored answer about " + queries.get(i))
+                    .endsWith("New question: " + queries.get(i));
+        }
+    }
+}
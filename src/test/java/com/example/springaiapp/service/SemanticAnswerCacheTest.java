@@ -0,0 +1,175 @@
+package com.example.springaiapp.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.pgvector.PGvector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The cache is keyed on the stored questions: a repeated or reworded question hits, and
+ * an unrelated one misses, whatever the stored answer says.
+ */
+class SemanticAnswerCacheTest {
+
+    /**
+     * Stand-in embedding model: a bag of content words, so a question reworded with other
+     * function words gets the same vector, and an answer shares nothing with its question.
+     */
+    private static final class WordEmbeddingModel implements EmbeddingModel {
+        private static final Set<String> STOP_WORDS = Set.of(
+                "a", "an", "the", "how", "do", "does", "can", "i", "what", "is", "are", "with", "in", "to", "of");
+        private static final int DIMENSIONS = 256;
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vector(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        private static float[] vector(String text) {
+            float[] vector = new float[DIMENSIONS];
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+                if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                    vector[Math.floorMod(word.hashCode(), DIMENSIONS)] += 1;
+                }
+            }
+            return vector;
+        }
+    }
+
+    /**
+     * Stand-in for the {@code answer_cache} table: keeps the inserted rows and answers the
+     * lookup with the row of the most similar question.
+     */
+    private static final class AnswerTable extends JdbcTemplate {
+        final List<Object[]> rows = new ArrayList<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            rows.addAll(batchArgs);
+            return new int[batchArgs.size()];
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            // Expiry: every row in these tests is fresh
+            return 0;
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            float[] query = ((PGvector) args[0]).toArray();
+            Object[] best = null;
+            double bestSimilarity = -1;
+            for (Object[] row : rows) {
+                double similarity = cosine(query, ((PGvector) row[1]).toArray());
+                if (similarity > bestSimilarity) {
+                    best = row;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best == null) {
+                return List.of();
+            }
+            try {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString("answer")).thenReturn((String) best[2]);
+                when(rs.getDouble("similarity")).thenReturn(bestSimilarity);
+                return List.of(rowMapper.mapRow(rs, 0));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static double cosine(float[] a, float[] b) {
+            double dot = 0;
+            double normA = 0;
+            double normB = 0;
+            for (int i = 0; i < a.length; i++) {
+                dot += a[i] * b[i];
+                normA += a[i] * a[i];
+                normB += b[i] * b[i];
+            }
+            return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+        }
+    }
+
+    private static final String QUESTION = "How do I stream tokens with Spring AI?";
+    private static final String ANSWER = "Call stream() on the ChatClient prompt and subscribe to the Flux of content.";
+
+    private final AnswerTable table = new AnswerTable();
+    private final SemanticAnswerCache cache = new SemanticAnswerCache(table, new WordEmbeddingModel());
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", 0.97);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(24));
+        cache.store(List.of(new Document(ANSWER, cache.metadataFor(QUESTION))));
+    }
+
+    @Test
+    void storesTheQuestionWithItsAnswer() {
+        assertThat(table.rows).singleElement().satisfies(row -> {
+            assertThat(row[0]).isEqualTo(QUESTION);
+            assertThat(row[2]).isEqualTo(ANSWER);
+        });
+    }
+
+    @Test
+    void aRepeatedQuestionHits() {
+        assertThat(cache.lookup(QUESTION, false)).contains(ANSWER);
+        assertThat(cache.lookup("  how do i stream TOKENS with spring ai ", false)).contains(ANSWER);
+        assertThat(cache.getStats()).containsEntry("hits", 2L).containsEntry("misses", 0L);
+    }
+
+    @Test
+    void aParaphrasedQuestionHits() {
+        assertThat(cache.lookup("Can I stream the tokens in Spring AI?", false)).contains(ANSWER);
+    }
+
+    @Test
+    void anUnrelatedQuestionMisses() {
+        assertThat(cache.lookup("How do I tune the HNSW index?", false)).isEmpty();
+        assertThat(cache.getStats()).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void refreshBypassesTheCache() {
+        assertThat(cache.lookup(QUESTION, true)).isEmpty();
+        assertThat(cache.getStats()).containsEntry("bypasses", 1L).containsEntry("hits", 0L);
+    }
+
+    @Test
+    void theStoredAnswerIsNotTheKey() {
+        // The old cache compared questions with the embedded answers; those never reach the cutoff
+        assertThat(cache.lookup(ANSWER, false)).isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springaiapp.vectorstore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the codec against pgvector's binary format, which every COPY row and replica
+ * sync depends on.
+ */
+class PgVectorCodecTest {
+
+    /** {@code SELECT vector_send('[1,-2,0.5]')}: int16 dimensions, int16 0, big-endian floats. */
+    private static final byte[] VECTOR_SEND = HexFormat.of().parseHex("000300003f800000c00000003f000000");
+
+    @Test
+    void encodesInTheFormatOfVectorSend() {
+        byte[] encoded = PgVectorCodec.encode(new float[] {1.0f, -2.0f, 0.5f});
+
+        assertThat(encoded).isEqualTo(VECTOR_SEND);
+        assertThat(PgVectorCodec.encodedSize(3)).isEqualTo(VECTOR_SEND.length);
+        assertThat(PgVectorCodec.dimensions(VECTOR_SEND)).isEqualTo(3);
+    }
+
+    @Test
+    void decodesTheOutputOfVectorSend() {
+        assertThat(PgVectorCodec.decode(VECTOR_SEND)).containsExactly(1.0f, -2.0f, 0.5f);
+    }
+
+    @Test
+    void roundTripsEveryFloat() {
+        float[] vector = new float[1536];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) Math.sin(i) * (i % 7 == 0 ? 1e-30f : 1f);
+        }
+        vector[1] = Float.MIN_VALUE;
+        vector[2] = -0.0f;
+        vector[3] = Float.MAX_VALUE;
+
+        float[] decoded = new float[vector.length];
+        PgVectorCodec.decode(PgVectorCodec.encode(vector), decoded);
+
+        assertThat(decoded).containsExactly(vector);
+        assertThat(Float.floatToRawIntBits(decoded[2])).isEqualTo(Float.floatToRawIntBits(-0.0f));
+    }
+
+    @Test
+    void rejectsATargetWithOtherDimensions() {
+        assertThatThrownBy(() -> PgVectorCodec.decode(VECTOR_SEND, new float[4]))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Expected a 4-dimension vector");
+    }
+
+    @Test
+    void rejectsAnArrayOfTheWrongLength() {
+        byte[] truncated = Arrays.copyOf(VECTOR_SEND, VECTOR_SEND.length - 1);
+        byte[] padded = Arrays.copyOf(VECTOR_SEND, VECTOR_SEND.length + 4);
+
+        assertThatThrownBy(() -> PgVectorCodec.decode(truncated, new float[3]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PgVectorCodec.decode(padded, new float[3]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsMoreDimensionsThanPgvectorSupports() {
+        assertThatThrownBy(() -> PgVectorCodec.encode(new float[16001]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void writesAtTheBufferPositionAndAdvancesIt() {
+        ByteBuffer buffer = ByteBuffer.allocate(7 + VECTOR_SEND.length + 2);
+        buffer.put(new byte[] {1, 2, 3, 4, 5, 6, 7});
+
+        PgVectorCodec.encode(new float[] {1.0f, -2.0f, 0.5f}, buffer);
+
+        assertThat(buffer.position()).isEqualTo(7 + VECTOR_SEND.length);
+        byte[] written = new byte[VECTOR_SEND.length];
+        buffer.get(7, written);
+        assertThat(written).isEqualTo(VECTOR_SEND);
+        assertThat(buffer.get(0)).isEqualTo((byte) 1);
+        assertThat(buffer.get(6)).isEqualTo((byte) 7);
+
+        // A second vector follows the first without a gap
+        ByteBuffer two = ByteBuffer.allocate(2 * VECTOR_SEND.length);
+        PgVectorCodec.encode(new float[] {1.0f, -2.0f, 0.5f}, two);
+        PgVectorCodec.encode(new float[] {1.0f, -2.0f, 0.5f}, two);
+        assertThat(two.hasRemaining()).isFalse();
+        assertThat(two.array()).startsWith(VECTOR_SEND).endsWith(VECTOR_SEND);
+    }
+}